@@ -20,11 +20,17 @@ import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.room.Room;
 import androidx.test.core.app.ApplicationProvider;
 
+import static org.junit.Assert.assertEquals;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Integration tests for the {@link LocalUserDataSource} implementation with Room.
  */
@@ -47,7 +53,7 @@ public class LocalUserDataSourceTest {
                 // allowing main thread queries, just for testing
                 .allowMainThreadQueries()
                 .build();
-        mDataSource = new LocalUserDataSource(mDatabase.userDao());
+        mDataSource = new LocalUserDataSource(mDatabase);
     }
 
     @After
@@ -97,11 +103,71 @@ public class LocalUserDataSourceTest {
         mDataSource.insertOrUpdateUser(USER).blockingAwait();
 
         //When we are deleting all users
-        mDataSource.deleteAllUsers();
+        mDataSource.deleteAllUsers().blockingAwait();
         // When subscribing to the emissions of the user
         mDatabase.userDao().getUser()
                 .test()
                 // check that there's no user emitted
                 .assertNoValues();
     }
+
+    @Test
+    public void insertAndGetManyUsers() {
+        // Given more users than are written in one transaction
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < LocalUserDataSource.SYNC_BATCH_SIZE * 2 + 1; i++) {
+            users.add(new User("id" + i, "username" + i));
+        }
+
+        // When inserting them in the data source
+        mDataSource.insertOrUpdateUsers(users).blockingAwait();
+
+        // All of them are found
+        List<User> found = mDataSource.getUsersByName("username", users.size() + 1)
+                .blockingGet();
+        assertEquals(users.size(), found.size());
+    }
+
+    @Test
+    public void getUsersByName() {
+        // Given users with and without a common prefix
+        mDataSource.insertOrUpdateUsers(Arrays.asList(
+                new User("1", "bob"),
+                new User("2", "anna"),
+                new User("3", "annabel"),
+                new User("4", "Anne"),
+                new User("5", "ann"))).blockingAwait();
+
+        // The users whose name starts with the prefix are found, in the order of their names
+        List<User> found = mDataSource.getUsersByName("ann", 10).blockingGet();
+        assertEquals(Arrays.asList(new User("5", "ann"), new User("2", "anna"),
+                new User("3", "annabel")), found);
+
+        // Up to the limit
+        assertEquals(2, mDataSource.getUsersByName("ann", 2).blockingGet().size());
+    }
+
+    @Test
+    public void deleteManyUsers() {
+        // Given more users than are deleted in one transaction
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < LocalUserDataSource.DELETE_BATCH_SIZE * 2 + 1; i++) {
+            users.add(new User("id" + i, "username" + i));
+        }
+        mDataSource.insertOrUpdateUsers(users).blockingAwait();
+
+        // When deleting all users
+        List<DeleteProgress> progress = mDataSource.deleteAllUsersWithProgress()
+                .toList()
+                .blockingGet();
+
+        // The progress is reported for each batch
+        assertEquals(3, progress.size());
+        DeleteProgress last = progress.get(progress.size() - 1);
+        assertEquals(users.size(), last.getDeleted());
+        assertEquals(users.size(), last.getTotal());
+
+        // And no user is left
+        assertEquals(0, mDataSource.getUsersByName("", 1).blockingGet().size());
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.paging.PagingSource;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Integration tests for {@link UserPagingSource} with Room.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UserPagingSourceTest {
+
+    private UsersDatabase mDatabase;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                UsersDatabase.class)
+                .build();
+        mDatabase.userDao().insertUsers(Arrays.asList(
+                new User("a", "Ann"),
+                new User("b", "Bob"),
+                new User("c", "Cid"),
+                new User("d", "Dee"),
+                new User("e", "Eve")));
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void appendsUntilTheEnd() {
+        UserPagingSource source = newSource();
+
+        // When loading the pages from the start
+        PagingSource.LoadResult.Page<String, User> page = load(source,
+                new PagingSource.LoadParams.Refresh<>(null, 2, false));
+        List<String> ids = ids(page);
+        assertNull(page.getPrevKey());
+        while (page.getNextKey() != null) {
+            page = load(source,
+                    new PagingSource.LoadParams.Append<>(page.getNextKey(), 2, false));
+            ids.addAll(ids(page));
+        }
+
+        // Every user is loaded once, in order
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), ids);
+    }
+
+    @Test
+    public void prependsFromTheMiddle() {
+        UserPagingSource source = newSource();
+
+        // When refreshing from a user in the middle
+        PagingSource.LoadResult.Page<String, User> refresh = load(source,
+                new PagingSource.LoadParams.Refresh<>("d", 2, false));
+        assertEquals(Arrays.asList("d", "e"), ids(refresh));
+
+        // The users before it are loaded in order
+        PagingSource.LoadResult.Page<String, User> before = load(source,
+                new PagingSource.LoadParams.Prepend<>(refresh.getPrevKey(), 2, false));
+        assertEquals(Arrays.asList("b", "c"), ids(before));
+    }
+
+    @Test
+    public void invalidatedByChanges() {
+        // Given a source that loaded a page
+        UserPagingSource source = newSource();
+        load(source, new PagingSource.LoadParams.Refresh<>(null, 2, false));
+
+        // When a user changes
+        mDatabase.userDao().insertUsers(Arrays.asList(new User("f", "Fay")));
+
+        // The source is invalidated
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!source.getInvalid() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertTrue(source.getInvalid());
+    }
+
+    private UserPagingSource newSource() {
+        return new UserPagingSource(mDatabase.userDao(), mDatabase.getInvalidationTracker());
+    }
+
+    private static PagingSource.LoadResult.Page<String, User> load(UserPagingSource source,
+            PagingSource.LoadParams<String> params) {
+        PagingSource.LoadResult<String, User> result = source.loadSingle(params).blockingGet();
+        assertTrue(result instanceof PagingSource.LoadResult.Page);
+        return (PagingSource.LoadResult.Page<String, User>) result;
+    }
+
+    private static List<String> ids(PagingSource.LoadResult.Page<String, User> page) {
+        List<String> ids = new ArrayList<>();
+        for (User user : page.getData()) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
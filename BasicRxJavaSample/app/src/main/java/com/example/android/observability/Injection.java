@@ -28,7 +28,7 @@ public class Injection {
 
     public static UserDataSource provideUserDataSource(Context context) {
         UsersDatabase database = UsersDatabase.getInstance(context);
-        return new LocalUserDataSource(database.userDao());
+        return new LocalUserDataSource(database);
     }
 
     public static ViewModelFactory provideViewModelFactory(Context context) {
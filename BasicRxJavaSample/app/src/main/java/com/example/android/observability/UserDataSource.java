@@ -16,10 +16,15 @@
 
 package com.example.android.observability;
 
+import androidx.paging.PagingData;
+import com.example.android.observability.persistence.DeleteProgress;
 import com.example.android.observability.persistence.User;
 
+import java.util.List;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Single;
 
 /**
  * Access point for managing user data.
@@ -33,6 +38,22 @@ public interface UserDataSource {
      */
     Flowable<User> getUser();
 
+    /**
+     * Gets all the users from the data source, a page at a time.
+     *
+     * @return the pages of users, emitted again when the users change.
+     */
+    Flowable<PagingData<User>> getUsers();
+
+    /**
+     * Gets the users whose name starts with a prefix, in the order of their names.
+     *
+     * @param prefix the start of the names, compared case sensitively.
+     * @param limit  the maximum number of users.
+     * @return the users found.
+     */
+    Single<List<User>> getUsersByName(String prefix, int limit);
+
     /**
      * Inserts the user into the data source, or, if this is an existing user, updates it.
      *
@@ -40,8 +61,24 @@ public interface UserDataSource {
      */
     Completable insertOrUpdateUser(User user);
 
+    /**
+     * Inserts the users into the data source, or, for the existing users, updates them.
+     *
+     * @param users the users to be inserted or updated.
+     */
+    Completable insertOrUpdateUsers(List<User> users);
+
     /**
      * Deletes all users from the data source.
+     *
+     * @return a {@link Completable} that completes when the users are deleted.
+     */
+    Completable deleteAllUsers();
+
+    /**
+     * Deletes all users from the data source, reporting the progress.
+     *
+     * @return the progress of the deletion, completing when the users are deleted.
      */
-    void deleteAllUsers();
+    Flowable<DeleteProgress> deleteAllUsersWithProgress();
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableEmitter;
+import io.reactivex.Scheduler;
+
+/**
+ * Writes users in batches. The writes made during a window of time are collected, only the last
+ * one of each user is kept, and they are all written in a single transaction at the end of the
+ * window. Rapid edits of a user then cost one write, and one emission of the queries observing
+ * it, per window. The windows are written one at a time and in order, even when the scheduler
+ * runs the end of a window before the previous one is written.
+ */
+class CoalescingUserWriter {
+
+    private final UserDao mUserDao;
+
+    private final Scheduler mScheduler;
+
+    private final long mWindowMillis;
+
+    private final Object mLock = new Object();
+
+    /** Held while a window is written, so the next one can't overtake it. */
+    private final Object mFlushLock = new Object();
+
+    /** The last version of each user written in the current window. */
+    private Map<String, User> mPending = new LinkedHashMap<>();
+
+    /** The writes to complete when the current window is written. */
+    private List<CompletableEmitter> mWaiting = new ArrayList<>();
+
+    private boolean mFlushScheduled;
+
+    CoalescingUserWriter(UserDao userDao, Scheduler scheduler, long windowMillis) {
+        mUserDao = userDao;
+        mScheduler = scheduler;
+        mWindowMillis = windowMillis;
+    }
+
+    /**
+     * Write a user in the current window.
+     *
+     * @return a {@link Completable} that completes once the window holding the user is written,
+     * which may have a later version of the same user instead. Disposing of it doesn't cancel the
+     * write.
+     */
+    Completable write(final User user) {
+        return Completable.create(emitter -> {
+            synchronized (mLock) {
+                mPending.put(user.getId(), user);
+                mWaiting.add(emitter);
+                if (!mFlushScheduled) {
+                    mFlushScheduled = true;
+                    mScheduler.scheduleDirect(this::flush, mWindowMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    private void flush() {
+        final List<CompletableEmitter> waiting;
+        synchronized (mFlushLock) {
+            // Taking the window under the flush lock keeps the windows in the order they ended
+            final List<User> users;
+            synchronized (mLock) {
+                users = new ArrayList<>(mPending.values());
+                waiting = mWaiting;
+                mPending = new LinkedHashMap<>();
+                mWaiting = new ArrayList<>();
+                mFlushScheduled = false;
+            }
+            try {
+                mUserDao.insertUsers(users);
+            } catch (Throwable throwable) {
+                for (CompletableEmitter emitter : waiting) {
+                    emitter.tryOnError(throwable);
+                }
+                return;
+            }
+        }
+        for (CompletableEmitter emitter : waiting) {
+            emitter.onComplete();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+/**
+ * How far the deletion of the users has gone.
+ */
+public class DeleteProgress {
+
+    private final int mDeleted;
+
+    private final int mTotal;
+
+    public DeleteProgress(int deleted, int total) {
+        mDeleted = deleted;
+        mTotal = total;
+    }
+
+    /**
+     * @return the number of users deleted so far.
+     */
+    public int getDeleted() {
+        return mDeleted;
+    }
+
+    /**
+     * @return the number of users there were to delete.
+     */
+    public int getTotal() {
+        return mTotal;
+    }
+}
@@ -16,34 +16,184 @@
 
 package com.example.android.observability.persistence;
 
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.rxjava2.PagingRx;
+import androidx.room.InvalidationTracker;
 import com.example.android.observability.UserDataSource;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * Using the Room database as a data source.
  */
 public class LocalUserDataSource implements UserDataSource {
 
+    /**
+     * How long writes are collected before being written together. Short enough for a single
+     * edit to look immediate.
+     */
+    private static final long WRITE_WINDOW_MILLIS = 50;
+
+    /** The number of users loaded at a time by {@link #getUsers()}. */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * The number of users written per transaction by {@link #insertOrUpdateUsers(List)}. Small
+     * enough for the readers waiting on the database not to notice.
+     */
+    static final int SYNC_BATCH_SIZE = 1000;
+
+    /** The number of users deleted per transaction by {@link #deleteAllUsersWithProgress()}. */
+    static final int DELETE_BATCH_SIZE = 500;
+
     private final UserDao mUserDao;
 
-    public LocalUserDataSource(UserDao userDao) {
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final Scheduler mWriteScheduler;
+
+    private final CoalescingUserWriter mWriter;
+
+    private final Flowable<User> mUser;
+
+    public LocalUserDataSource(UsersDatabase database) {
+        this(database.userDao(), database.getInvalidationTracker(), Schedulers.io(),
+                WRITE_WINDOW_MILLIS);
+    }
+
+    LocalUserDataSource(UserDao userDao, InvalidationTracker invalidationTracker,
+            Scheduler writeScheduler, long writeWindowMillis) {
         mUserDao = userDao;
+        mInvalidationTracker = invalidationTracker;
+        mWriteScheduler = writeScheduler;
+        mWriter = new CoalescingUserWriter(userDao, writeScheduler, writeWindowMillis);
+        mUser = userDao.getUser()
+                // Room queries again whenever the table changes, even if the user didn't
+                .distinctUntilChanged()
+                // all the subscribers share the query, and a new one gets the current user
+                .replay(1)
+                .refCount();
     }
 
+    /**
+     * Every subscriber shares one query of the database, which only emits when the user actually
+     * changed. A slow subscriber skips to the latest user instead of queueing all of them.
+     */
     @Override
     public Flowable<User> getUser() {
-        return mUserDao.getUser();
+        return mUser.onBackpressureLatest();
     }
 
+    /**
+     * The pages are loaded by key, see {@link UserPagingSource}.
+     */
+    @Override
+    public Flowable<PagingData<User>> getUsers() {
+        final Pager<String, User> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+                () -> new UserPagingSource(mUserDao, mInvalidationTracker));
+        return PagingRx.getFlowable(pager);
+    }
+
+    /**
+     * The names starting with the prefix are the range from the prefix to the first name after
+     * all of them, which is read from the index of the names.
+     */
+    @Override
+    public Single<List<User>> getUsersByName(String prefix, int limit) {
+        final String until = nameUpperBound(prefix);
+        return until == null
+                ? mUserDao.loadUsersByName(prefix, limit)
+                : mUserDao.loadUsersByName(prefix, until, limit);
+    }
+
+    /**
+     * The updates of a user made in quick succession are collapsed into the last one and written
+     * together, see {@link CoalescingUserWriter}.
+     */
     @Override
     public Completable insertOrUpdateUser(User user) {
-       return mUserDao.insertUser(user);
+        return mWriter.write(user);
+    }
+
+    /**
+     * The users are written {@link #SYNC_BATCH_SIZE} at a time, each batch in its own
+     * transaction. Reading the users isn't blocked for the whole of a large sync, and a sync that
+     * fails keeps the batches written before.
+     */
+    @Override
+    public Completable insertOrUpdateUsers(List<User> users) {
+        return Completable.fromAction(() -> {
+            for (int from = 0; from < users.size(); from += SYNC_BATCH_SIZE) {
+                final int to = Math.min(from + SYNC_BATCH_SIZE, users.size());
+                mUserDao.insertUsers(users.subList(from, to));
+            }
+        });
+    }
+
+    @Override
+    public Completable deleteAllUsers() {
+        return deleteAllUsersWithProgress().ignoreElements();
     }
 
+    /**
+     * The users are deleted {@link #DELETE_BATCH_SIZE} at a time, in the order of their rowids,
+     * each batch in its own transaction. Each batch is a separate task of the write scheduler, so
+     * the readers and writers waiting on the database run between them. The users inserted after
+     * the deletion started usually get a larger rowid and are kept. The table has no
+     * {@code AUTOINCREMENT}, though, so once the user with the largest rowid is deleted, by
+     * someone else or by the last batch of this deletion, SQLite can hand out its rowid, or one
+     * below it, again: a user inserted then may be deleted too.
+     *
+     * <p>The deletion doesn't run more than a batch ahead of the progress requested.</p>
+     */
     @Override
-    public void deleteAllUsers() {
-        mUserDao.deleteAllUsers();
+    public Flowable<DeleteProgress> deleteAllUsersWithProgress() {
+        return Flowable.defer(() -> {
+            final Long maxRowId = mUserDao.getMaxRowId();
+            if (maxRowId == null) {
+                return Flowable.<DeleteProgress>empty();
+            }
+            final int total = mUserDao.countUsersUpTo(maxRowId);
+            final AtomicInteger deleted = new AtomicInteger();
+            return Flowable.fromCallable(
+                    () -> mUserDao.deleteUsersUpTo(maxRowId, DELETE_BATCH_SIZE))
+                    .subscribeOn(mWriteScheduler)
+                    .repeat()
+                    .takeUntil(count -> count < DELETE_BATCH_SIZE)
+                    .map(count -> new DeleteProgress(deleted.addAndGet(count), total));
+        }).subscribeOn(mWriteScheduler);
+    }
+
+    /**
+     * @return the smallest name after all the names starting with {@code prefix}, or
+     * {@code null} if there is none. It is the prefix with its last character incremented.
+     */
+    static String nameUpperBound(String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            final int last = prefix.codePointBefore(end);
+            end -= Character.charCount(last);
+            if (last < Character.MAX_CODE_POINT) {
+                int next = last + 1;
+                if (next == Character.MIN_SURROGATE) {
+                    next = Character.MAX_SURROGATE + 1;
+                }
+                return new StringBuilder(end + 2)
+                        .append(prefix, 0, end)
+                        .appendCodePoint(next)
+                        .toString();
+            }
+        }
+        return null;
     }
 }
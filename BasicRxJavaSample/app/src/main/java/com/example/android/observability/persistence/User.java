@@ -19,6 +19,7 @@ package com.example.android.observability.persistence;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.annotation.NonNull;
 import java.util.UUID;
@@ -26,7 +27,7 @@ import java.util.UUID;
 /**
  * Immutable model class for a User
  */
-@Entity(tableName = "users")
+@Entity(tableName = "users", indices = {@Index("username")})
 public class User {
 
     @NonNull
@@ -55,4 +56,24 @@ public class User {
     public String getUserName() {
         return mUserName;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        User user = (User) o;
+        return mId.equals(user.mId)
+                && (mUserName == null ? user.mUserName == null : mUserName.equals(user.mUserName));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId.hashCode();
+        result = 31 * result + (mUserName != null ? mUserName.hashCode() : 0);
+        return result;
+    }
 }
@@ -22,6 +22,8 @@ import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Single;
+import java.util.List;
 
 /**
  * Data Access Object for the users table.
@@ -38,6 +40,59 @@ public interface UserDao {
     @Query("SELECT * FROM Users LIMIT 1")
     Flowable<User> getUser();
 
+    /**
+     * Get a page of users, in the order of their ids.
+     *
+     * @param fromId the id of the first user of the page, or of the user that would be before it.
+     * @param limit  the maximum number of users in the page.
+     * @return the users whose id is equal to or after {@code fromId}
+     */
+    @Query("SELECT * FROM users WHERE userid >= :fromId ORDER BY userid LIMIT :limit")
+    Single<List<User>> loadUsersFrom(String fromId, int limit);
+
+    /**
+     * Get the page of users following a user, in the order of their ids.
+     *
+     * @param afterId the id of the last user of the previous page.
+     * @param limit   the maximum number of users in the page.
+     * @return the users whose id is after {@code afterId}
+     */
+    @Query("SELECT * FROM users WHERE userid > :afterId ORDER BY userid LIMIT :limit")
+    Single<List<User>> loadUsersAfter(String afterId, int limit);
+
+    /**
+     * Get the page of users preceding a user, in the reverse order of their ids.
+     *
+     * @param beforeId the id of the first user of the next page.
+     * @param limit    the maximum number of users in the page.
+     * @return the users whose id is before {@code beforeId}, the closest first
+     */
+    @Query("SELECT * FROM users WHERE userid < :beforeId ORDER BY userid DESC LIMIT :limit")
+    Single<List<User>> loadUsersBefore(String beforeId, int limit);
+
+    /**
+     * Get the users whose name is in a range, in the order of their names. The range is a seek in
+     * the index of the names, so it doesn't depend on the number of users.
+     *
+     * @param from  the smallest name of the range.
+     * @param until the name after the range.
+     * @param limit the maximum number of users.
+     * @return the users whose name is equal to or after {@code from}, and before {@code until}
+     */
+    @Query("SELECT * FROM users WHERE username >= :from AND username < :until "
+            + "ORDER BY username LIMIT :limit")
+    Single<List<User>> loadUsersByName(String from, String until, int limit);
+
+    /**
+     * Get the users whose name is equal to or after a name, in the order of their names.
+     *
+     * @param from  the smallest name.
+     * @param limit the maximum number of users.
+     * @return the users whose name is equal to or after {@code from}
+     */
+    @Query("SELECT * FROM users WHERE username >= :from ORDER BY username LIMIT :limit")
+    Single<List<User>> loadUsersByName(String from, int limit);
+
     /**
      * Insert a user in the database. If the user already exists, replace it.
      *
@@ -46,9 +101,48 @@ public interface UserDao {
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     Completable insertUser(User user);
 
+    /**
+     * Insert users in the database, in a single transaction. The users that already exist are
+     * replaced.
+     *
+     * @param users the users to be inserted.
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertUsers(List<User> users);
+
     /**
      * Delete all users.
      */
     @Query("DELETE FROM Users")
     void deleteAllUsers();
+
+    /**
+     * Get the largest rowid of the table. The users inserted later are above it only as long as
+     * the user holding it isn't deleted, as the table has no {@code AUTOINCREMENT}.
+     *
+     * @return the largest rowid, or {@code null} if there are no users
+     */
+    @Query("SELECT MAX(rowid) FROM users")
+    Long getMaxRowId();
+
+    /**
+     * Count the users up to a rowid.
+     *
+     * @param maxRowId the largest rowid counted.
+     * @return the number of users whose rowid isn't above {@code maxRowId}
+     */
+    @Query("SELECT COUNT(*) FROM users WHERE rowid <= :maxRowId")
+    int countUsersUpTo(long maxRowId);
+
+    /**
+     * Delete the users with the smallest rowids, up to a rowid. The rows are found by a seek in
+     * the table itself, so each call only costs the rows it deletes.
+     *
+     * @param maxRowId the largest rowid deleted.
+     * @param limit    the maximum number of users deleted.
+     * @return the number of users deleted
+     */
+    @Query("DELETE FROM users WHERE rowid IN "
+            + "(SELECT rowid FROM users WHERE rowid <= :maxRowId ORDER BY rowid LIMIT :limit)")
+    int deleteUsersUpTo(long maxRowId, int limit);
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.PagingState;
+import androidx.paging.rxjava2.RxPagingSource;
+import androidx.room.InvalidationTracker;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import kotlin.Unit;
+
+/**
+ * Pages through the users in the order of their ids.
+ *
+ * <p>Each page is a query for the users after (or before) the last id loaded, which is a seek in
+ * the primary key index. Unlike an offset, it costs the same at the end of a million users as at
+ * the start, and a user added or removed while scrolling doesn't shift the following pages.</p>
+ */
+class UserPagingSource extends RxPagingSource<String, User> {
+
+    private final UserDao mUserDao;
+
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final InvalidationTracker.Observer mObserver =
+            new InvalidationTracker.Observer("users") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidate();
+                }
+            };
+
+    private final AtomicBoolean mObserving = new AtomicBoolean();
+
+    UserPagingSource(UserDao userDao, InvalidationTracker invalidationTracker) {
+        mUserDao = userDao;
+        mInvalidationTracker = invalidationTracker;
+        registerInvalidatedCallback(() -> {
+            if (mObserving.get()) {
+                invalidationTracker.removeObserver(mObserver);
+            }
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public Single<LoadResult<String, User>> loadSingle(@NonNull LoadParams<String> params) {
+        return Single.defer(() -> {
+            // Stop being valid when the users change. Registering reads the database, so it's
+            // done with the first load rather than when the source is created.
+            if (mObserving.compareAndSet(false, true)) {
+                mInvalidationTracker.addObserver(mObserver);
+                // Invalidated before the observer was added, the callback had nothing to remove
+                if (getInvalid()) {
+                    mInvalidationTracker.removeObserver(mObserver);
+                }
+            }
+            if (getInvalid()) {
+                return Single.<LoadResult<String, User>>just(new LoadResult.Invalid<>());
+            }
+            return load(params);
+        })
+                .onErrorReturn(LoadResult.Error::new)
+                .subscribeOn(Schedulers.io());
+    }
+
+    private Single<LoadResult<String, User>> load(LoadParams<String> params) {
+        final String key = params.getKey();
+        final int loadSize = params.getLoadSize();
+        if (params instanceof LoadParams.Append) {
+            return mUserDao.loadUsersAfter(key, loadSize)
+                    .map(users -> page(users, first(users), users.size() < loadSize
+                            ? null : last(users)));
+        }
+        if (params instanceof LoadParams.Prepend) {
+            return mUserDao.loadUsersBefore(key, loadSize)
+                    .map(users -> {
+                        final List<User> ordered = new ArrayList<>(users);
+                        Collections.reverse(ordered);
+                        return page(ordered, users.size() < loadSize ? null : first(ordered),
+                                last(ordered));
+                    });
+        }
+        return mUserDao.loadUsersFrom(key == null ? "" : key, loadSize)
+                .map(users -> {
+                    // Nothing is before the first page, and the users before an empty page can
+                    // still be loaded
+                    final String prevKey = key == null ? null
+                            : users.isEmpty() ? key : first(users);
+                    return page(users, prevKey, users.size() < loadSize ? null : last(users));
+                });
+    }
+
+    /**
+     * Refresh from the user closest to the scroll position.
+     */
+    @Nullable
+    @Override
+    public String getRefreshKey(@NonNull PagingState<String, User> state) {
+        final Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        final User user = state.closestItemToPosition(anchorPosition);
+        return user == null ? null : user.getId();
+    }
+
+    private static LoadResult<String, User> page(List<User> users, String prevKey,
+            String nextKey) {
+        return new LoadResult.Page<>(users, prevKey, nextKey);
+    }
+
+    @Nullable
+    private static String first(List<User> users) {
+        return users.isEmpty() ? null : users.get(0).getId();
+    }
+
+    @Nullable
+    private static String last(List<User> users) {
+        return users.isEmpty() ? null : users.get(users.size() - 1).getId();
+    }
+}
@@ -16,15 +16,18 @@
 
 package com.example.android.observability.persistence;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 import android.content.Context;
 
 /**
  * The Room database that contains the Users table
  */
-@Database(entities = {User.class}, version = 1)
+@Database(entities = {User.class}, version = 2)
 public abstract class UsersDatabase extends RoomDatabase {
 
     private static volatile UsersDatabase INSTANCE;
@@ -37,6 +40,7 @@ public abstract class UsersDatabase extends RoomDatabase {
                 if (INSTANCE == null) {
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             UsersDatabase.class, "Sample.db")
+                            .addMigrations(MIGRATION_1_2)
                             .build();
                 }
             }
@@ -44,4 +48,16 @@ public abstract class UsersDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    /**
+     * Index the users by name, for the name prefix lookup.
+     */
+    private static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_users_username` "
+                + "ON `users` (`username`)");
+        }
+    };
+
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * Unit test for {@link CoalescingUserWriter}
+ */
+public class CoalescingUserWriterTest {
+
+    private static final long WINDOW_MILLIS = 100;
+
+    @Mock
+    private UserDao mUserDao;
+
+    @Captor
+    private ArgumentCaptor<List<User>> mUsersArgumentCaptor;
+
+    private TestScheduler mScheduler;
+
+    private CoalescingUserWriter mWriter;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        mScheduler = new TestScheduler();
+        mWriter = new CoalescingUserWriter(mUserDao, mScheduler, WINDOW_MILLIS);
+    }
+
+    @Test
+    public void write_completesOnlyOnceWritten() {
+        // When writing a user
+        TestObserver<Void> observer = mWriter.write(new User("id", "name")).test();
+
+        // Nothing is written before the end of the window
+        observer.assertNotComplete();
+        verify(mUserDao, never()).insertUsers(anyList());
+
+        // The write completes at the end of the window
+        mScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        observer.assertComplete();
+    }
+
+    @Test
+    public void write_keepsTheLastUpdateOfEachUser() {
+        // When updating a user several times and another user once in the same window
+        TestObserver<Void> first = mWriter.write(new User("id", "first")).test();
+        TestObserver<Void> second = mWriter.write(new User("other", "other")).test();
+        TestObserver<Void> last = mWriter.write(new User("id", "last")).test();
+        mScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        // Only the last version of each user is written, in a single call
+        verify(mUserDao, times(1)).insertUsers(mUsersArgumentCaptor.capture());
+        List<User> users = mUsersArgumentCaptor.getValue();
+        assertThat(users.size(), Matchers.is(2));
+        assertThat(users.get(0).getUserName(), Matchers.is("last"));
+        assertThat(users.get(1).getUserName(), Matchers.is("other"));
+
+        // And every write completes
+        first.assertComplete();
+        second.assertComplete();
+        last.assertComplete();
+    }
+
+    @Test
+    public void write_nextWindowIsWrittenSeparately() {
+        // Given a window that was already written
+        mWriter.write(new User("id", "first")).test();
+        mScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        // When writing again
+        TestObserver<Void> observer = mWriter.write(new User("id", "second")).test();
+        mScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        // The new write has its own transaction
+        verify(mUserDao, times(2)).insertUsers(anyList());
+        observer.assertComplete();
+    }
+
+    @Test
+    public void write_failsWhenTheWindowFails() {
+        // Given that writing fails
+        RuntimeException error = new RuntimeException("disk full");
+        doThrow(error).when(mUserDao).insertUsers(anyList());
+
+        // When writing users in the same window
+        TestObserver<Void> first = mWriter.write(new User("id", "first")).test();
+        TestObserver<Void> second = mWriter.write(new User("other", "other")).test();
+        mScheduler.advanceTimeBy(WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+
+        // Every write gets the error
+        first.assertError(error);
+        second.assertError(error);
+    }
+
+    @Test
+    public void write_windowsEndingTogetherAreWrittenInOrder() throws InterruptedException {
+        // Given a scheduler that can end the next window while the previous one is written
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CoalescingUserWriter writer = new CoalescingUserWriter(mUserDao,
+                Schedulers.from(executor), 0);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            List<User> users = invocation.getArgument(0);
+            if (users.get(0).getUserName().equals("first")) {
+                firstStarted.countDown();
+                releaseFirst.await();
+            }
+            written.add(users.get(0).getUserName());
+            running.decrementAndGet();
+            return null;
+        }).when(mUserDao).insertUsers(anyList());
+
+        try {
+            // When the second window ends while the first one is still written
+            TestObserver<Void> first = writer.write(new User("id", "first")).test();
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS), Matchers.is(true));
+            TestObserver<Void> second = writer.write(new User("id", "second")).test();
+
+            // It waits for the first one
+            assertThat(second.await(100, TimeUnit.MILLISECONDS), Matchers.is(false));
+            releaseFirst.countDown();
+            first.awaitTerminalEvent(5, TimeUnit.SECONDS);
+            second.awaitTerminalEvent(5, TimeUnit.SECONDS);
+
+            // And the last version of the user is the one left in the database
+            first.assertComplete();
+            second.assertComplete();
+            assertThat(maxRunning.get(), Matchers.is(1));
+            assertThat(written, Matchers.contains("first", "second"));
+        } finally {
+            releaseFirst.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.room.InvalidationTracker;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import io.reactivex.Flowable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+
+/**
+ * Unit test for the deletion of the users by {@link LocalUserDataSource}
+ */
+public class LocalUserDataSourceDeleteTest {
+
+    private static final long MAX_ROW_ID = 42;
+
+    private static final int BATCH = LocalUserDataSource.DELETE_BATCH_SIZE;
+
+    @Mock
+    private UserDao mUserDao;
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    private TestScheduler mScheduler;
+
+    private LocalUserDataSource mDataSource;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(mUserDao.getUser()).thenReturn(Flowable.never());
+        mScheduler = new TestScheduler();
+        mDataSource = new LocalUserDataSource(mUserDao, mInvalidationTracker, mScheduler, 0);
+    }
+
+    @Test
+    public void deleteAllUsersWithProgress_deletesInBatches() {
+        // Given more users than are deleted in one transaction
+        when(mUserDao.getMaxRowId()).thenReturn(MAX_ROW_ID);
+        when(mUserDao.countUsersUpTo(MAX_ROW_ID)).thenReturn(BATCH * 2 + 1);
+        when(mUserDao.deleteUsersUpTo(MAX_ROW_ID, BATCH)).thenReturn(BATCH, BATCH, 1);
+
+        // When deleting them
+        TestSubscriber<DeleteProgress> subscriber = mDataSource.deleteAllUsersWithProgress()
+                .test();
+
+        // Nothing is deleted on the subscribing thread
+        verify(mUserDao, never()).deleteUsersUpTo(anyLong(), anyInt());
+
+        // Each batch reports the progress, until the last one
+        mScheduler.triggerActions();
+        verify(mUserDao, times(3)).deleteUsersUpTo(MAX_ROW_ID, BATCH);
+        subscriber.assertValueCount(3);
+        subscriber.assertComplete();
+        DeleteProgress last = subscriber.values().get(2);
+        assertThat(last.getDeleted(), Matchers.is(BATCH * 2 + 1));
+        assertThat(last.getTotal(), Matchers.is(BATCH * 2 + 1));
+    }
+
+    @Test
+    public void deleteAllUsersWithProgress_waitsForTheProgressToBeRequested() {
+        when(mUserDao.getMaxRowId()).thenReturn(MAX_ROW_ID);
+        when(mUserDao.countUsersUpTo(MAX_ROW_ID)).thenReturn(BATCH * 4);
+        when(mUserDao.deleteUsersUpTo(MAX_ROW_ID, BATCH)).thenReturn(BATCH);
+
+        // When only the progress of the first batch is requested
+        TestSubscriber<DeleteProgress> subscriber = mDataSource.deleteAllUsersWithProgress()
+                .test(1);
+        mScheduler.triggerActions();
+
+        // The deletion stops a batch ahead
+        verify(mUserDao, times(2)).deleteUsersUpTo(MAX_ROW_ID, BATCH);
+        subscriber.assertValueCount(1);
+        subscriber.assertNotComplete();
+    }
+
+    @Test
+    public void deleteAllUsers_completesWhenThereAreNoUsers() {
+        when(mUserDao.getMaxRowId()).thenReturn(null);
+
+        TestObserver<Void> observer = mDataSource.deleteAllUsers().test();
+        mScheduler.triggerActions();
+
+        observer.assertComplete();
+        verify(mUserDao, never()).deleteUsersUpTo(anyLong(), anyInt());
+    }
+}
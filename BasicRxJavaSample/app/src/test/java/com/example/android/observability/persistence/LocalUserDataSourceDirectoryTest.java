@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.room.InvalidationTracker;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.TestScheduler;
+
+/**
+ * Unit test for the user directory methods of {@link LocalUserDataSource}
+ */
+public class LocalUserDataSourceDirectoryTest {
+
+    @Mock
+    private UserDao mUserDao;
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    @Captor
+    private ArgumentCaptor<List<User>> mUsersArgumentCaptor;
+
+    private LocalUserDataSource mDataSource;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        when(mUserDao.getUser()).thenReturn(Flowable.never());
+        mDataSource = new LocalUserDataSource(mUserDao, mInvalidationTracker, new TestScheduler(),
+                0);
+    }
+
+    @Test
+    public void insertOrUpdateUsers_writesInBatches() {
+        // Given more users than are written in one transaction
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < LocalUserDataSource.SYNC_BATCH_SIZE * 2 + 1; i++) {
+            users.add(new User("id" + i, "name"));
+        }
+
+        // When inserting them
+        mDataSource.insertOrUpdateUsers(users).test().assertComplete();
+
+        // They are written in batches of at most SYNC_BATCH_SIZE users
+        verify(mUserDao, times(3)).insertUsers(mUsersArgumentCaptor.capture());
+        List<List<User>> batches = mUsersArgumentCaptor.getAllValues();
+        assertThat(batches.get(0).size(), Matchers.is(LocalUserDataSource.SYNC_BATCH_SIZE));
+        assertThat(batches.get(1).size(), Matchers.is(LocalUserDataSource.SYNC_BATCH_SIZE));
+        assertThat(batches.get(2).size(), Matchers.is(1));
+    }
+
+    @Test
+    public void insertOrUpdateUsers_failsWhenABatchFails() {
+        RuntimeException error = new RuntimeException("disk full");
+        doThrow(error).when(mUserDao).insertUsers(anyList());
+
+        mDataSource.insertOrUpdateUsers(Collections.singletonList(new User("id", "name")))
+                .test()
+                .assertError(error);
+    }
+
+    @Test
+    public void getUsersByName_searchesTheRangeOfThePrefix() {
+        when(mUserDao.loadUsersByName("ann", "ano", 10))
+                .thenReturn(Single.just(Collections.emptyList()));
+
+        mDataSource.getUsersByName("ann", 10).test().assertComplete();
+
+        verify(mUserDao).loadUsersByName("ann", "ano", 10);
+    }
+
+    @Test
+    public void getUsersByName_emptyPrefixHasNoEnd() {
+        when(mUserDao.loadUsersByName("", 10))
+                .thenReturn(Single.just(Collections.emptyList()));
+
+        mDataSource.getUsersByName("", 10).test().assertComplete();
+
+        verify(mUserDao).loadUsersByName("", 10);
+    }
+
+    @Test
+    public void nameUpperBound() {
+        assertThat(LocalUserDataSource.nameUpperBound("ann"), Matchers.is("ano"));
+        // The surrogates aren't characters
+        assertThat(LocalUserDataSource.nameUpperBound("a\uD7FF"), Matchers.is("a\uE000"));
+        // The last code point can't be incremented, so the one before is
+        assertThat(LocalUserDataSource.nameUpperBound("a\uDBFF\uDFFF"), Matchers.is("b"));
+        assertThat(LocalUserDataSource.nameUpperBound("\uDBFF\uDFFF"), Matchers.nullValue());
+        assertThat(LocalUserDataSource.nameUpperBound(""), Matchers.nullValue());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.when;
+
+import androidx.room.InvalidationTracker;
+
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subscribers.TestSubscriber;
+
+/**
+ * Unit test for the user stream of {@link LocalUserDataSource}
+ */
+public class LocalUserDataSourceStreamTest {
+
+    @Mock
+    private UserDao mUserDao;
+
+    @Mock
+    private InvalidationTracker mInvalidationTracker;
+
+    private final PublishProcessor<User> mQuery = PublishProcessor.create();
+
+    private final AtomicInteger mQuerySubscriptions = new AtomicInteger();
+
+    private LocalUserDataSource mDataSource;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+
+        // The user query of the DAO, counting its subscriptions
+        when(mUserDao.getUser()).thenReturn(
+                mQuery.doOnSubscribe(subscription -> mQuerySubscriptions.incrementAndGet()));
+        mDataSource = new LocalUserDataSource(mUserDao, mInvalidationTracker, new TestScheduler(),
+                0);
+    }
+
+    @Test
+    public void getUser_skipsUnchangedUsers() {
+        TestSubscriber<User> subscriber = mDataSource.getUser().test();
+
+        // When the query emits the same user again, then a changed one
+        mQuery.onNext(new User("id", "name"));
+        mQuery.onNext(new User("id", "name"));
+        mQuery.onNext(new User("id", "new name"));
+
+        // Only the changes are emitted
+        subscriber.assertValueCount(2);
+        assertThat(subscriber.values().get(1).getUserName(), Matchers.is("new name"));
+    }
+
+    @Test
+    public void getUser_sharesTheQuery() {
+        // Given a subscriber that got the user
+        TestSubscriber<User> first = mDataSource.getUser().test();
+        mQuery.onNext(new User("id", "name"));
+
+        // When another one subscribes
+        TestSubscriber<User> second = mDataSource.getUser().test();
+
+        // It gets the current user from the same query
+        second.assertValueCount(1);
+        assertThat(mQuerySubscriptions.get(), Matchers.is(1));
+
+        // And both get the changes
+        mQuery.onNext(new User("id", "new name"));
+        first.assertValueCount(2);
+        second.assertValueCount(2);
+    }
+
+    @Test
+    public void getUser_slowSubscriberGetsTheLatestUser() {
+        // Given a subscriber that doesn't request any user yet
+        TestSubscriber<User> subscriber = mDataSource.getUser().test(0);
+
+        // When the user changes several times
+        mQuery.onNext(new User("id", "first"));
+        mQuery.onNext(new User("id", "second"));
+        mQuery.onNext(new User("id", "third"));
+
+        // Only the latest is delivered once requested
+        subscriber.request(1);
+        subscriber.assertValueCount(1);
+        assertThat(subscriber.values().get(0).getUserName(), Matchers.is("third"));
+    }
+
+    @Test
+    public void getUser_queriesAgainAfterAllSubscribersLeft() {
+        mDataSource.getUser().test().dispose();
+        mDataSource.getUser().test().dispose();
+
+        assertThat(mQuerySubscriptions.get(), Matchers.is(2));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.benchmark;
+
+import androidx.paging.PagingData;
+import com.example.android.observability.UserDataSource;
+import com.example.android.observability.persistence.DeleteProgress;
+import com.example.android.observability.persistence.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+
+/**
+ * A {@link UserDataSource} keeping the users in memory, so the benchmarks measure the streams
+ * rather than the database.
+ *
+ * <p>{@link #getUser()} emits every version of the user written so far, as the query of the
+ * database would while the user is edited, and then completes.</p>
+ */
+class FakeUserDataSource implements UserDataSource {
+
+    /** Every version of the users, in the order they were written. */
+    private final List<User> mUpdates = new CopyOnWriteArrayList<>();
+
+    /** The last version of each user. */
+    private final Map<String, User> mUsers = new LinkedHashMap<>();
+
+    @Override
+    public Flowable<User> getUser() {
+        return Flowable.fromIterable(mUpdates);
+    }
+
+    @Override
+    public Flowable<PagingData<User>> getUsers() {
+        return Flowable.fromCallable(() -> PagingData.from(users()));
+    }
+
+    @Override
+    public Single<List<User>> getUsersByName(String prefix, int limit) {
+        return Single.fromCallable(() -> {
+            final List<User> found = new ArrayList<>();
+            for (User user : users()) {
+                if (user.getUserName() != null && user.getUserName().startsWith(prefix)) {
+                    found.add(user);
+                }
+            }
+            found.sort(Comparator.comparing(User::getUserName));
+            return found.size() > limit ? found.subList(0, limit) : found;
+        });
+    }
+
+    @Override
+    public Completable insertOrUpdateUser(User user) {
+        return Completable.fromAction(() -> write(user));
+    }
+
+    @Override
+    public Completable insertOrUpdateUsers(List<User> users) {
+        return Completable.fromAction(() -> {
+            for (User user : users) {
+                write(user);
+            }
+        });
+    }
+
+    @Override
+    public Completable deleteAllUsers() {
+        return deleteAllUsersWithProgress().ignoreElements();
+    }
+
+    @Override
+    public Flowable<DeleteProgress> deleteAllUsersWithProgress() {
+        return Flowable.fromCallable(() -> {
+            synchronized (mUsers) {
+                final int total = mUsers.size();
+                mUsers.clear();
+                mUpdates.clear();
+                return new DeleteProgress(total, total);
+            }
+        });
+    }
+
+    private void write(User user) {
+        synchronized (mUsers) {
+            mUsers.put(user.getId(), user);
+            mUpdates.add(user);
+        }
+    }
+
+    private List<User> users() {
+        synchronized (mUsers) {
+            return new ArrayList<>(mUsers.values());
+        }
+    }
+}
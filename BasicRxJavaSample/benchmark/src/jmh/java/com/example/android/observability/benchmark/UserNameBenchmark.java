@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.benchmark;
+
+import com.example.android.observability.persistence.User;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Benchmarks of the stream of user names shown by the {@code UserActivity}.
+ *
+ * <p>The emission benchmarks count one operation per user name, so with the {@code gc} profiler,
+ * {@code gc.alloc.rate.norm} is the memory allocated per emission. The first item benchmarks
+ * count one operation per subscription, and report the distribution of the time until the first
+ * user name.</p>
+ *
+ * <p>The {@code UserViewModel} is an Android {@code ViewModel}, which can't be loaded outside of
+ * the app, so {@link #userName()} repeats the operators of
+ * {@code UserViewModel.getUserName()}.</p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserNameBenchmark {
+
+    /** The number of versions of the user emitted by each subscription. */
+    private static final int UPDATES = 1000;
+
+    private FakeUserDataSource mDataSource;
+
+    private User mUser;
+
+    @Setup
+    public void setUp() {
+        mDataSource = new FakeUserDataSource();
+        for (int i = 0; i < UPDATES; i++) {
+            mDataSource.insertOrUpdateUser(new User("id", "name " + i)).blockingAwait();
+        }
+    }
+
+    private Flowable<String> userName() {
+        return mDataSource.getUser()
+                .map(user -> {
+                    mUser = user;
+                    return user.getUserName();
+                });
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    public void emissions(Blackhole blackhole) {
+        userName().subscribe(blackhole::consume);
+    }
+
+    /**
+     * With the filtering of the unchanged users done by the {@code LocalUserDataSource}.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    public void emissionsOfChangedUsers(Blackhole blackhole) {
+        mDataSource.getUser()
+                .distinctUntilChanged()
+                .map(User::getUserName)
+                .subscribe(blackhole::consume);
+    }
+
+    /**
+     * With each user name handed to another thread, as the {@code UserActivity} does with the
+     * main thread.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    public void emissionsObservedOnAnotherThread(Blackhole blackhole) {
+        userName()
+                .observeOn(Schedulers.single())
+                .blockingSubscribe(blackhole::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String firstItem() {
+        return userName().blockingFirst();
+    }
+
+    /**
+     * With the subscription made on the I/O scheduler, as the {@code UserActivity} does.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String firstItemSubscribedOnIo() {
+        return userName()
+                .subscribeOn(Schedulers.io())
+                .blockingFirst();
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.benchmark
+
+import com.example.android.observability.persistence.User
+import com.example.android.observability.persistence.UserDao
+import io.reactivex.Completable
+import io.reactivex.Flowable
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.asFlow
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * A [UserDao] keeping the users in memory, so the benchmarks measure the streams rather than the
+ * database.
+ *
+ * [getUserById] emits every version of the user written so far, as the query of the database
+ * would while the user is edited, and then completes. [getUserFlowById] emits the same users as a
+ * coroutine [Flow].
+ */
+class FakeUserDao : UserDao {
+
+    /** Every version of each user, in the order they were written. */
+    private val updates = ConcurrentHashMap<String, MutableList<User>>()
+
+    override fun getUserById(id: String): Flowable<User> = Flowable.fromIterable(updatesOf(id))
+
+    fun getUserFlowById(id: String): Flow<User> = updatesOf(id).asFlow()
+
+    override fun insertUser(user: User): Completable = Completable.fromAction {
+        updates.getOrPut(user.id) { CopyOnWriteArrayList() }.add(user)
+    }
+
+    override fun deleteAllUsers() {
+        updates.clear()
+    }
+
+    private fun updatesOf(id: String): List<User> = updates[id] ?: emptyList()
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.observability.benchmark
+
+import com.example.android.observability.persistence.User
+import io.reactivex.Flowable
+import io.reactivex.schedulers.Schedulers
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.runBlocking
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Benchmarks of the stream of user names shown by the `UserActivity`, with RxJava as in the app,
+ * and with a coroutine [Flow] to compare.
+ *
+ * The emission benchmarks count one operation per user name, so with the `gc` profiler,
+ * `gc.alloc.rate.norm` is the memory allocated per emission. The first item benchmarks count one
+ * operation per subscription, and report the distribution of the time until the first user name.
+ *
+ * The `UserViewModel` is an Android `ViewModel`, which can't be loaded outside of the app, so
+ * [userName] repeats the operators of `UserViewModel.userName()`.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class UserNameBenchmark {
+
+    private val dataSource = FakeUserDao()
+
+    @Setup
+    fun setUp() {
+        repeat(UPDATES) {
+            dataSource.insertUser(User(USER_ID, "name $it")).blockingAwait()
+        }
+    }
+
+    private fun userName(): Flowable<String> {
+        return dataSource.getUserById(USER_ID)
+                .map { user -> user.userName }
+    }
+
+    private fun userNameFlow(): Flow<String> {
+        return dataSource.getUserFlowById(USER_ID)
+                .map { user -> user.userName }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    fun rxEmissions(blackhole: Blackhole) {
+        userName().subscribe { blackhole.consume(it) }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    fun flowEmissions(blackhole: Blackhole) = runBlocking {
+        userNameFlow().collect { blackhole.consume(it) }
+    }
+
+    /**
+     * With each user name handed to another thread, as the `UserActivity` does with the main
+     * thread.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    fun rxEmissionsObservedOnAnotherThread(blackhole: Blackhole) {
+        userName()
+                .observeOn(Schedulers.single())
+                .blockingSubscribe { blackhole.consume(it) }
+    }
+
+    /**
+     * With the user names produced on another dispatcher than the one collecting them.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @OperationsPerInvocation(UPDATES)
+    fun flowEmissionsOnAnotherDispatcher(blackhole: Blackhole) = runBlocking {
+        userNameFlow()
+                .flowOn(Dispatchers.Default)
+                .collect { blackhole.consume(it) }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    fun rxFirstItem(): String = userName().blockingFirst()
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    fun flowFirstItem(): String = runBlocking { userNameFlow().first() }
+
+    /**
+     * With the subscription made on the I/O scheduler, as the `UserActivity` does.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    fun rxFirstItemSubscribedOnIo(): String {
+        return userName()
+                .subscribeOn(Schedulers.io())
+                .blockingFirst()
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    fun flowFirstItemOnIo(): String = runBlocking {
+        userNameFlow()
+                .flowOn(Dispatchers.IO)
+                .first()
+    }
+
+    companion object {
+        /** The number of versions of the user emitted by each subscription. */
+        const val UPDATES = 1000
+
+        // the id used by the UserViewModel
+        const val USER_ID = "1"
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.database.Cursor;
+import android.util.Log;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Test the implementation of {@link BulkSeeder}
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkSeederTest {
+
+    private static final String TAG = "BulkSeederTest";
+
+    private static final int PRODUCTS = 10_000;
+
+    private static final int COMMENTS_PER_PRODUCT = 5;
+
+    private AppDatabase mDatabase;
+
+    @Before
+    public void initDb() {
+        mDatabase = Room.inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(),
+                AppDatabase.class)
+                .build();
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+    }
+
+    @Test
+    public void seedWritesAllRowsAndRebuildsIndex() {
+        BulkSeeder.Stats stats = new BulkSeeder(mDatabase, 1_000)
+                .seed(PRODUCTS, COMMENTS_PER_PRODUCT, 42);
+        Log.i(TAG, stats.toString());
+
+        assertThat(stats.productRows, is((long) PRODUCTS));
+        assertThat(stats.commentRows, is((long) PRODUCTS * COMMENTS_PER_PRODUCT));
+        assertThat(count("SELECT COUNT(*) FROM products"), is((long) PRODUCTS));
+        assertThat(count("SELECT COUNT(*) FROM comments"),
+                is((long) PRODUCTS * COMMENTS_PER_PRODUCT));
+        // Every product was indexed by the rebuild
+        assertThat(count("SELECT COUNT(*) FROM productsFts WHERE productsFts MATCH 'monocle'"),
+                is((long) PRODUCTS / 4));
+    }
+
+    @Test
+    public void ftsStaysInSyncAfterSeeding() {
+        new BulkSeeder(mDatabase, 100).seed(10, 1, 42);
+
+        mDatabase.getOpenHelper().getWritableDatabase().execSQL(
+                "UPDATE products SET name = 'Telescope' WHERE id = 1");
+
+        assertThat(count("SELECT COUNT(*) FROM productsFts WHERE productsFts MATCH 'telescope'"),
+                is(1L));
+    }
+
+    @Test
+    public void interruptedImportIsRecoveredOnOpen() {
+        new BulkSeeder(mDatabase, 100).seed(10, 1, 42);
+        // Dies before ending the import
+        mDatabase.beginBulkImport();
+        mDatabase.getOpenHelper().getWritableDatabase().execSQL(
+                "UPDATE products SET name = 'Telescope' WHERE id = 1");
+        assertThat(count("SELECT COUNT(*) FROM productsFts WHERE productsFts MATCH 'telescope'"),
+                is(0L));
+
+        AppDatabase.recoverInterruptedImport(mDatabase.getOpenHelper().getWritableDatabase());
+
+        assertThat(count("SELECT COUNT(*) FROM productsFts WHERE productsFts MATCH 'telescope'"),
+                is(1L));
+        assertThat(count("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' "
+                + "AND name LIKE 'room_fts_content_sync_productsFts_%'"), is(4L));
+    }
+
+    private long count(String query) {
+        try (Cursor cursor = mDatabase.query(query, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -42,6 +42,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -118,4 +120,36 @@ public class CommentDaoTest {
         assertThat(comments.size(), is(1));
     }
 
+    @Test
+    public void pageCommentsNewestFirstByKey() {
+        mProductDao.insertAll(PRODUCTS);
+        int productId = COMMENT_ENTITY.getProductId();
+        Date date = new Date(1000);
+        // Two comments posted at the same time are ordered by id
+        mCommentDao.insertAll(Arrays.asList(
+                new CommentEntity(1, productId, "oldest", new Date(0)),
+                new CommentEntity(2, productId, "same time", date),
+                new CommentEntity(3, productId, "same time", date),
+                new CommentEntity(4, productId, "newest", new Date(2000))));
+
+        List<CommentEntity> firstPage = mCommentDao.loadNewestComments(productId, 2);
+        CommentEntity last = firstPage.get(firstPage.size() - 1);
+        List<CommentEntity> secondPage = mCommentDao.loadCommentsBefore(productId,
+                last.getPostedAt().getTime(), last.getId(), 2);
+        CommentEntity first = secondPage.get(0);
+        List<CommentEntity> newer = mCommentDao.loadCommentsAfter(productId,
+                first.getPostedAt().getTime(), first.getId(), 2);
+
+        assertThat(ids(firstPage), is(Arrays.asList(4, 3)));
+        assertThat(ids(secondPage), is(Arrays.asList(2, 1)));
+        assertThat(ids(newer), is(Arrays.asList(3, 4)));
+    }
+
+    private static List<Integer> ids(List<CommentEntity> comments) {
+        Integer[] ids = new Integer[comments.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = comments.get(i).getId();
+        }
+        return Arrays.asList(ids);
+    }
 }
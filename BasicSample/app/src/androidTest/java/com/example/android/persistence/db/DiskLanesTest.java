@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static com.example.android.persistence.db.TestData.PRODUCTS;
+import static com.example.android.persistence.db.TestData.PRODUCT_ENTITY;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.android.persistence.AppExecutors;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test that reads on the reader pool aren't blocked by a transaction on the write lane.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DiskLanesTest {
+
+    private static final String DATABASE_NAME = "disk-lanes-test-db";
+
+    private AppExecutors mExecutors;
+
+    private AppDatabase mDatabase;
+
+    @Before
+    public void initDb() {
+        Context context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(DATABASE_NAME);
+        mExecutors = new AppExecutors();
+        // Write-ahead logging needs a database file, it doesn't apply to in-memory databases
+        mDatabase = AppDatabase.withDiskLanes(
+                Room.databaseBuilder(context, AppDatabase.class, DATABASE_NAME), mExecutors)
+                .build();
+        mDatabase.productDao().insertAll(PRODUCTS);
+    }
+
+    @After
+    public void closeDb() {
+        mDatabase.close();
+        ApplicationProvider.getApplicationContext().deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void readDoesNotWaitForRunningTransaction() throws InterruptedException {
+        CountDownLatch transactionStarted = new CountDownLatch(1);
+        CountDownLatch finishTransaction = new CountDownLatch(1);
+        mExecutors.diskIO().execute(() -> mDatabase.runInTransaction(() -> {
+            mDatabase.productDao().insertAll(PRODUCTS);
+            transactionStarted.countDown();
+            try {
+                finishTransaction.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        assertTrue(transactionStarted.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch read = new CountDownLatch(1);
+        AtomicReference<ProductEntity> product = new AtomicReference<>();
+        mExecutors.diskRead().execute(() -> {
+            product.set(mDatabase.productDao().loadProductSync(PRODUCT_ENTITY.getId()));
+            read.countDown();
+        });
+        try {
+            // The transaction is still running
+            assertTrue(read.await(2, TimeUnit.SECONDS));
+            assertThat(product.get().getName(), is(PRODUCT_ENTITY.getName()));
+        } finally {
+            finishTransaction.countDown();
+        }
+    }
+}
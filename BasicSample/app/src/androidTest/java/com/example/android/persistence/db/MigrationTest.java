@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import android.database.Cursor;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+/**
+ * Test the migrations of {@link AppDatabase} against the schemas exported by Room.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    @Rule
+    public MigrationTestHelper mHelper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(),
+            AppDatabase.class.getCanonicalName(),
+            new FrameworkSQLiteOpenHelperFactory());
+
+    @Test
+    public void migrate2To3() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 2);
+        insertProduct(db, 1, "Monkey wrench");
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 3, true, AppDatabase.MIGRATION_2_3);
+
+        // The products are in the rebuilt full text index
+        assertThat(count(db, "SELECT COUNT(*) FROM productsFts WHERE productsFts MATCH 'mo*'"),
+                is(1L));
+    }
+
+    @Test
+    public void migrate3To4() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 3);
+        insertProduct(db, 1, "Monkey wrench");
+        insertComment(db, 1);
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 4, true, AppDatabase.MIGRATION_3_4);
+
+        assertThat(count(db, "SELECT COUNT(*) FROM comments WHERE productId = 1"), is(1L));
+    }
+
+    @Test
+    public void migrate4To5() throws IOException {
+        SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 4);
+        insertProduct(db, 1, "banana");
+        insertProduct(db, 2, "Apple");
+        insertComment(db, 1);
+        db.close();
+
+        db = mHelper.runMigrationsAndValidate(TEST_DB, 5, true, AppDatabase.MIGRATION_4_5);
+
+        // Copying the products keeps their comments, and the names now sort ignoring case
+        assertThat(count(db, "SELECT COUNT(*) FROM comments WHERE productId = 1"), is(1L));
+        try (Cursor cursor = db.query("SELECT id FROM products ORDER BY name, id")) {
+            cursor.moveToFirst();
+            assertThat(cursor.getInt(0), is(2));
+        }
+    }
+
+    private static void insertProduct(SupportSQLiteDatabase db, int id, String name) {
+        db.execSQL("INSERT INTO products (id, name, description, price) VALUES (?, ?, ?, ?)",
+                new Object[]{id, name, "description " + id, 10});
+    }
+
+    private static void insertComment(SupportSQLiteDatabase db, int productId) {
+        db.execSQL("INSERT INTO comments (productId, text, postedAt) VALUES (?, ?, ?)",
+                new Object[]{productId, "comment", 1L});
+    }
+
+    private static long count(SupportSQLiteDatabase db, String query) {
+        try (Cursor cursor = db.query(query)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -16,20 +16,30 @@
 
 package com.example.android.persistence.db;
 
+import static com.example.android.persistence.db.TestData.COMMENTS;
+import static com.example.android.persistence.db.TestData.COMMENT_ENTITY;
 import static com.example.android.persistence.db.TestData.PRODUCTS;
 import static com.example.android.persistence.db.TestData.PRODUCT_ENTITY;
+import static com.example.android.persistence.db.TestData.PRODUCT_ENTITY2;
 
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import android.database.Cursor;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.paging.PagingSource;
 import androidx.room.Room;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import com.example.android.persistence.LiveDataTestUtil;
 import com.example.android.persistence.db.dao.ProductDao;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.entity.ProductMatchInfo;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.db.entity.ProductSummary;
 
 import org.junit.After;
 import org.junit.Before;
@@ -37,8 +47,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.List;
 
+import kotlin.coroutines.EmptyCoroutineContext;
+import kotlinx.coroutines.BuildersKt;
+
 /**
  * Test the implementation of {@link ProductDao}
  */
@@ -99,4 +113,110 @@ public class ProductDaoTest {
         assertThat(product.getPrice(), is(PRODUCT_ENTITY.getPrice()));
     }
 
+    @Test
+    public void getProductSummaryCountsComments() throws InterruptedException {
+        mProductDao.insertAll(PRODUCTS);
+        mDatabase.commentDao().insertAll(COMMENTS);
+
+        ProductSummary summary = LiveDataTestUtil.getValue(
+                mProductDao.loadProductSummary(PRODUCT_ENTITY.getId()));
+
+        assertThat(summary.getId(), is(PRODUCT_ENTITY.getId()));
+        assertThat(summary.getCommentCount(), is(1));
+        assertThat(summary.getLastCommentAt(), is(COMMENT_ENTITY.getPostedAt()));
+    }
+
+    @Test
+    public void getProductSummaryWithoutComments() throws InterruptedException {
+        mProductDao.insertAll(PRODUCTS);
+
+        ProductSummary summary = LiveDataTestUtil.getValue(
+                mProductDao.loadProductSummary(PRODUCT_ENTITY.getId()));
+
+        assertThat(summary.getCommentCount(), is(0));
+        assertNull(summary.getLastCommentAt());
+    }
+
+    @Test
+    public void searchProductsByPrefix() {
+        mProductDao.insertAll(PRODUCTS);
+
+        String query = ProductSearch.toMatchQuery("nam");
+        List<ProductMatchInfo> matches = mProductDao.searchMatchInfo(query);
+        List<ProductSearchResult> results =
+                ProductSearch.loadTopResults(mProductDao, query, matches, 10, 0);
+
+        assertThat(results.size(), is(PRODUCTS.size()));
+    }
+
+    @Test
+    public void searchProductsRanksBestMatchFirst() {
+        mProductDao.insertAll(PRODUCTS);
+
+        String query = ProductSearch.toMatchQuery("desc2");
+        List<ProductMatchInfo> matches = mProductDao.searchMatchInfo(query);
+        List<ProductSearchResult> results =
+                ProductSearch.loadTopResults(mProductDao, query, matches, 1, 0);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getId(), is(PRODUCT_ENTITY2.getId()));
+        assertTrue(results.get(0).getSnippet().contains("desc2"));
+    }
+
+    @Test
+    public void getProductsInPriceRange() throws InterruptedException {
+        mProductDao.insertAll(PRODUCTS);
+
+        List<ProductEntity> products =
+                loadFirstPage(mProductDao.loadProductsInPriceRangePaged(10, 30));
+
+        assertThat(products.size(), is(1));
+        assertThat(products.get(0).getId(), is(PRODUCT_ENTITY2.getId()));
+    }
+
+    @Test
+    public void sortedListingsReadIndexes() {
+        assertUsesIndex("SELECT * FROM products ORDER BY name, id", "index_products_name_id");
+        assertUsesIndex("SELECT * FROM products ORDER BY price DESC, id DESC",
+                "index_products_price_id");
+        assertUsesIndex("SELECT * FROM products WHERE price BETWEEN 10 AND 30 ORDER BY price, id",
+                "index_products_price_id");
+    }
+
+    @Test
+    public void namesSortIgnoringCase() {
+        mProductDao.insertAll(Arrays.asList(new ProductEntity(1, "banana", "", 1),
+                new ProductEntity(2, "Apple", "", 1), new ProductEntity(3, "apricot", "", 1)));
+
+        try (Cursor cursor = mDatabase.query("SELECT name FROM products ORDER BY name, id", null)) {
+            cursor.moveToFirst();
+            assertThat(cursor.getString(0), is("Apple"));
+            cursor.moveToNext();
+            assertThat(cursor.getString(0), is("apricot"));
+        }
+    }
+
+    /**
+     * Load the first page of {@code source}, the way the pager does when the list is shown.
+     */
+    private static <T> List<T> loadFirstPage(final PagingSource<Integer, T> source)
+            throws InterruptedException {
+        PagingSource.LoadResult<Integer, T> result = BuildersKt.runBlocking(
+                EmptyCoroutineContext.INSTANCE,
+                (scope, continuation) -> source.load(
+                        new PagingSource.LoadParams.Refresh<>(null, 10, false), continuation));
+        assertTrue(result instanceof PagingSource.LoadResult.Page);
+        return ((PagingSource.LoadResult.Page<Integer, T>) result).getData();
+    }
+
+    private void assertUsesIndex(String query, String index) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = mDatabase.query("EXPLAIN QUERY PLAN " + query, null)) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnIndex("detail"))).append('\n');
+            }
+        }
+        assertTrue(plan.toString(), plan.toString().contains(index));
+        assertFalse(plan.toString(), plan.toString().contains("TEMP B-TREE"));
+    }
 }
@@ -19,6 +19,8 @@ package com.example.android.persistence;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -26,31 +28,53 @@ import java.util.concurrent.Executors;
  * Global executor pools for the whole application.
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
- * webservice requests).
+ * webservice requests). Each pool is instrumented, see {@link #getStats()}.
  */
 public class AppExecutors {
 
-    private final Executor mDiskIO;
+    private static final int READER_THREAD_COUNT = 4;
 
-    private final Executor mNetworkIO;
+    private final InstrumentedExecutor mDiskIO;
 
-    private final Executor mMainThread;
+    private final InstrumentedExecutor mDiskRead;
 
-    private AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
-        this.mDiskIO = diskIO;
-        this.mNetworkIO = networkIO;
-        this.mMainThread = mainThread;
+    private final InstrumentedExecutor mNetworkIO;
+
+    private final InstrumentedExecutor mMainThread;
+
+    private final InstrumentedExecutor mDiffing;
+
+    private AppExecutors(Executor diskIO, Executor diskRead, Executor networkIO,
+            Executor mainThread, Executor diffing) {
+        this.mDiskIO = new InstrumentedExecutor("diskIO", diskIO);
+        this.mDiskRead = new InstrumentedExecutor("diskRead", diskRead);
+        this.mNetworkIO = new InstrumentedExecutor("networkIO", networkIO);
+        this.mMainThread = new InstrumentedExecutor("mainThread", mainThread);
+        this.mDiffing = new InstrumentedExecutor("diffing", diffing);
     }
 
     public AppExecutors() {
-        this(Executors.newSingleThreadExecutor(), Executors.newFixedThreadPool(3),
-                new MainThreadExecutor());
+        this(Executors.newSingleThreadExecutor(),
+                Executors.newFixedThreadPool(READER_THREAD_COUNT), Executors.newFixedThreadPool(3),
+                new MainThreadExecutor(), Executors.newSingleThreadExecutor());
     }
 
+    /**
+     * The write lane: a single thread, so writes and transactions never wait for each other's
+     * locks. Used by Room for its transactions.
+     */
     public Executor diskIO() {
         return mDiskIO;
     }
 
+    /**
+     * Readers of the database. With write-ahead logging they run concurrently with each other and
+     * with the write lane, so reads don't queue behind long writes. Used by Room for its queries.
+     */
+    public Executor diskRead() {
+        return mDiskRead;
+    }
+
     public Executor networkIO() {
         return mNetworkIO;
     }
@@ -59,6 +83,29 @@ public class AppExecutors {
         return mMainThread;
     }
 
+    /**
+     * Computes the differences between the lists shown by the adapters, so large lists are never
+     * diffed on the main thread nor wait behind disk or network work.
+     */
+    public Executor diffing() {
+        return mDiffing;
+    }
+
+    /**
+     * Queue depth, rejections and queue wait and run time histograms of every pool, so a backlog
+     * behind long tasks shows up in tests and logs.
+     */
+    @NonNull
+    public List<InstrumentedExecutor.Stats> getStats() {
+        List<InstrumentedExecutor.Stats> stats = new ArrayList<>(5);
+        stats.add(mDiskIO.snapshot());
+        stats.add(mDiskRead.snapshot());
+        stats.add(mNetworkIO.snapshot());
+        stats.add(mMainThread.snapshot());
+        stats.add(mDiffing.snapshot());
+        return stats;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
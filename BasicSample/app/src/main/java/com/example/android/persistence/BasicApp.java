@@ -33,6 +33,10 @@ public class BasicApp extends Application {
         mAppExecutors = new AppExecutors();
     }
 
+    public AppExecutors getAppExecutors() {
+        return mAppExecutors;
+    }
+
     public AppDatabase getDatabase() {
         return AppDatabase.getInstance(this, mAppExecutors);
     }
@@ -1,31 +1,64 @@
 package com.example.android.persistence;
 
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
-import androidx.lifecycle.MediatorLiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.room.InvalidationTracker;
 import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.CommentKeysetPagingSource;
+import com.example.android.persistence.db.ProductSearch;
+import com.example.android.persistence.db.dao.ProductDao;
 import com.example.android.persistence.db.entity.CommentEntity;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.db.entity.ProductSummary;
+import com.example.android.persistence.model.ProductSort;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Repository handling the work with products and comments.
  */
 public class DataRepository {
 
+    /**
+     * Number of products loaded per page. A few screens worth of items, so the user rarely
+     * reaches the end of the loaded window before the next page arrives.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /** Number of recent search results kept in memory. */
+    private static final int SEARCH_CACHE_SIZE = 32;
+
     private static DataRepository sInstance;
 
     private final AppDatabase mDatabase;
-    private MediatorLiveData<List<ProductEntity>> mObservableProducts;
+    private final ProductListLiveData mObservableProducts;
+
+    private final LruCache<String, List<ProductSearchResult>> mSearchCache =
+            new LruCache<>(SEARCH_CACHE_SIZE);
+
+    /** Incremented when the products change, so a search running meanwhile isn't cached. */
+    private volatile int mSearchCacheVersion;
 
     private DataRepository(final AppDatabase database) {
         mDatabase = database;
-        mObservableProducts = new MediatorLiveData<>();
+        mObservableProducts = new ProductListLiveData(database);
 
-        mObservableProducts.addSource(mDatabase.productDao().loadAllProducts(),
-                productEntities -> {
-                    if (mDatabase.getDatabaseCreated().getValue() != null) {
-                        mObservableProducts.postValue(productEntities);
+        mDatabase.getInvalidationTracker().addObserver(
+                new InvalidationTracker.Observer("products") {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        mSearchCacheVersion++;
+                        mSearchCache.evictAll();
                     }
                 });
     }
@@ -43,11 +76,91 @@ public class DataRepository {
 
     /**
      * Get the list of products from the database and get notified when the data changes.
+     * Products written through {@link #saveProducts(List)} and {@link #deleteProducts(List)}
+     * are applied to the list without loading the others again.
      */
     public LiveData<List<ProductEntity>> getProducts() {
         return mObservableProducts;
     }
 
+    /**
+     * Update the products that exist and insert the others.
+     */
+    @WorkerThread
+    public void saveProducts(final List<ProductEntity> products) {
+        final List<Integer> ids = new ArrayList<>(products.size());
+        for (ProductEntity product : products) {
+            ids.add(product.getId());
+        }
+        mDatabase.runInTransaction(() -> {
+            mDatabase.productDao().updateAll(products);
+            mDatabase.productDao().insertNew(products);
+            mObservableProducts.onProductsChanged(ids);
+        });
+    }
+
+    /**
+     * Delete the products, along with their comments.
+     */
+    @WorkerThread
+    public void deleteProducts(final List<Integer> productIds) {
+        mDatabase.runInTransaction(() -> {
+            mDatabase.productDao().deleteAll(productIds);
+            mObservableProducts.onProductsChanged(productIds);
+        });
+    }
+
+    /**
+     * Get the products from the database one page at a time. Only the window around the visible
+     * items is kept in memory and a change to the table re-queries just that window. Every order
+     * reads the rows in the order of an index, so no page needs the whole table sorted first.
+     */
+    public LiveData<PagingData<ProductEntity>> getProductsPaged(final ProductSort sort) {
+        final ProductDao dao = mDatabase.productDao();
+        Pager<Integer, ProductEntity> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+                () -> {
+                    switch (sort) {
+                        case NAME:
+                            return dao.loadProductsByNamePaged();
+                        case PRICE_ASCENDING:
+                            return dao.loadProductsByPricePaged();
+                        case PRICE_DESCENDING:
+                            return dao.loadProductsByPriceDescendingPaged();
+                        default:
+                            return dao.loadProductsPaged();
+                    }
+                });
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    /**
+     * Get the products priced between {@code minPrice} and {@code maxPrice} included, cheapest
+     * first, one page at a time.
+     */
+    public LiveData<PagingData<ProductEntity>> getProductsInPriceRangePaged(final int minPrice,
+            final int maxPrice) {
+        Pager<Integer, ProductEntity> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+                () -> mDatabase.productDao().loadProductsInPriceRangePaged(minPrice, maxPrice));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    /**
+     * Get the products one page at a time, each with its number of comments and when the latest
+     * one was posted, without loading any comment.
+     */
+    public LiveData<PagingData<ProductSummary>> getProductSummariesPaged() {
+        Pager<Integer, ProductSummary> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+                () -> mDatabase.productDao().loadProductSummariesPaged());
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    public LiveData<ProductSummary> loadProductSummary(final int productId) {
+        return mDatabase.productDao().loadProductSummary(productId);
+    }
+
     public LiveData<ProductEntity> loadProduct(final int productId) {
         return mDatabase.productDao().loadProduct(productId);
     }
@@ -56,7 +169,54 @@ public class DataRepository {
         return mDatabase.commentDao().loadComments(productId);
     }
 
-    public LiveData<List<ProductEntity>> searchProducts(String query) {
-        return mDatabase.productDao().searchAllProducts(query);
+    /**
+     * Get the comments of a product newest first, one page at a time. Pages are loaded by key, so
+     * scrolling deep into a product with thousands of comments stays as fast as the first page.
+     */
+    public LiveData<PagingData<CommentEntity>> loadCommentsPaged(final int productId) {
+        Pager<CommentKeysetPagingSource.Key, CommentEntity> pager = new Pager<>(
+                new PagingConfig(PAGE_SIZE, PAGE_SIZE, false),
+                () -> new CommentKeysetPagingSource(mDatabase, productId));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    /**
+     * Search the products as the user types and get the {@code limit} best matches for each
+     * query, ranked by relevance. Queries are debounced, superseded searches are cancelled and
+     * the results of recent queries are cached until the products change.
+     */
+    public LiveData<List<ProductSearchResult>> searchProducts(LiveData<CharSequence> queries,
+            int limit) {
+        return new ProductSearchLiveData(this, mDatabase.getInvalidationTracker(),
+                mDatabase.getQueryExecutor(), queries, limit);
+    }
+
+    /**
+     * Get the cached results of a search, or {@code null} if it has to run again.
+     */
+    @Nullable
+    List<ProductSearchResult> getCachedSearch(String matchQuery, int limit, int offset) {
+        return mSearchCache.get(searchCacheKey(matchQuery, limit, offset));
+    }
+
+    @WorkerThread
+    @NonNull
+    List<ProductSearchResult> searchProductsSync(String matchQuery, int limit, int offset) {
+        String key = searchCacheKey(matchQuery, limit, offset);
+        List<ProductSearchResult> results = mSearchCache.get(key);
+        if (results != null) {
+            return results;
+        }
+        int version = mSearchCacheVersion;
+        results = ProductSearch.loadTopResults(mDatabase.productDao(), matchQuery,
+                mDatabase.productDao().searchMatchInfo(matchQuery), limit, offset);
+        if (version == mSearchCacheVersion) {
+            mSearchCache.put(key, results);
+        }
+        return results;
+    }
+
+    private static String searchCacheKey(String matchQuery, int limit, int offset) {
+        return matchQuery + '\n' + limit + '\n' + offset;
     }
 }
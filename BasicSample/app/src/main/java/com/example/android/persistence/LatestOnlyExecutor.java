@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import androidx.annotation.NonNull;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on another executor, but only the latest one submitted while the previous task was
+ * still waiting: a task that hasn't started yet when a newer one arrives is dropped.
+ * <p>
+ * Only use it for tasks where the newest one makes the older ones useless, such as diffing the
+ * next list to show against the current one.
+ */
+public class LatestOnlyExecutor implements Executor {
+
+    private final Executor mExecutor;
+
+    private final Object mLock = new Object();
+
+    private Runnable mPending;
+
+    public LatestOnlyExecutor(@NonNull Executor executor) {
+        mExecutor = executor;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        synchronized (mLock) {
+            boolean scheduled = mPending != null;
+            mPending = command;
+            if (scheduled) {
+                // The task already scheduled will run this one instead
+                return;
+            }
+        }
+        mExecutor.execute(() -> {
+            Runnable latest;
+            synchronized (mLock) {
+                latest = mPending;
+                mPending = null;
+            }
+            latest.run();
+        });
+    }
+}
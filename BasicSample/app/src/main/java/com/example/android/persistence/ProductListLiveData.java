@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.room.InvalidationTracker;
+import com.example.android.persistence.db.AppDatabase;
+import com.example.android.persistence.db.dao.ProductDao;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * All the products, kept in memory and updated incrementally.
+ * <p>
+ * The repository records the ids of the products it writes with {@link #onProductsChanged}, and
+ * when Room reports that the products changed only those rows are queried again and applied to
+ * the previous {@link ProductSnapshot}. When the products changed without the ids being recorded,
+ * by a write that didn't go through the repository, the whole table is loaded again.
+ * <p>
+ * The ids are recorded inside the write's transaction, so they are known before Room can report
+ * the write. The ids of a write that is rolled back are only queried again for nothing. A write
+ * that bypasses the repository while the repository writes too is reported with the recorded
+ * ids, so its rows are only loaded on the next full load: the only such write is the seeding of
+ * the database, which is over before the first load.
+ */
+class ProductListLiveData extends MediatorLiveData<List<ProductEntity>> {
+
+    /** Stays below SQLite's limit of 999 bound variables per query. */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final AppDatabase mDatabase;
+
+    private final Runnable mRefreshRunnable = this::refresh;
+
+    /** Guarded by itself. */
+    private final Set<Integer> mChangedIds = new HashSet<>();
+
+    /** Guarded by {@link #mChangedIds}, whether the products changed since the last refresh. */
+    private boolean mInvalidated = true;
+
+    /** Only accessed while holding {@link #mRefreshLock}. */
+    private ProductSnapshot mSnapshot;
+
+    private final Object mRefreshLock = new Object();
+
+    private volatile boolean mDatabaseCreated;
+
+    ProductListLiveData(AppDatabase database) {
+        mDatabase = database;
+        // Registered for the lifetime of the repository, so changes made while nobody observes
+        // are known when observers come back
+        database.getInvalidationTracker().addObserver(
+                new InvalidationTracker.Observer("products") {
+                    @Override
+                    public void onInvalidated(@NonNull Set<String> tables) {
+                        synchronized (mChangedIds) {
+                            mInvalidated = true;
+                        }
+                        if (hasActiveObservers()) {
+                            scheduleRefresh();
+                        }
+                    }
+                });
+        addSource(database.getDatabaseCreated(), created -> {
+            mDatabaseCreated = created != null;
+            scheduleRefresh();
+        });
+    }
+
+    /**
+     * Record that the products with these ids are written. Call it inside the write's transaction,
+     * so the ids are recorded before Room reports the write.
+     */
+    void onProductsChanged(Collection<Integer> productIds) {
+        synchronized (mChangedIds) {
+            mChangedIds.addAll(productIds);
+        }
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+    }
+
+    @WorkerThread
+    private void refresh() {
+        if (!mDatabaseCreated) {
+            return;
+        }
+        synchronized (mRefreshLock) {
+            List<Integer> changedIds;
+            synchronized (mChangedIds) {
+                if (!mInvalidated && mSnapshot != null) {
+                    return;
+                }
+                changedIds = new ArrayList<>(mChangedIds);
+                mChangedIds.clear();
+                mInvalidated = false;
+            }
+            ProductDao dao = mDatabase.productDao();
+            if (mSnapshot == null || changedIds.isEmpty()) {
+                mSnapshot = ProductSnapshot.of(dao.loadAllProductsSync());
+            } else {
+                SortedMap<Integer, ProductEntity> changes = new TreeMap<>();
+                for (Integer id : changedIds) {
+                    // Deleted unless it's found again
+                    changes.put(id, null);
+                }
+                for (int start = 0; start < changedIds.size(); start += MAX_IDS_PER_QUERY) {
+                    List<Integer> ids = changedIds.subList(start,
+                            Math.min(changedIds.size(), start + MAX_IDS_PER_QUERY));
+                    for (ProductEntity product : dao.loadProductsSync(ids)) {
+                        changes.put(product.getId(), product);
+                    }
+                }
+                mSnapshot = mSnapshot.apply(changes);
+            }
+            postValue(mSnapshot);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.room.InvalidationTracker;
+import com.example.android.persistence.db.ProductSearch;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Search-as-you-type results for a LiveData of queries.
+ * <p>
+ * A new query is only searched once the user stops typing for {@link #DEBOUNCE_MS}. A search
+ * that hasn't started yet when a newer query arrives is cancelled, and the results of one that
+ * already started are dropped. While observed, the current query is searched again whenever the
+ * products change.
+ * <p>
+ * Adding or removing the invalidation observer may write to the database to set up Room's
+ * triggers, so it is done on the executor rather than on the main thread.
+ */
+class ProductSearchLiveData extends MediatorLiveData<List<ProductSearchResult>> {
+
+    static final long DEBOUNCE_MS = 300;
+
+    private final DataRepository mRepository;
+    private final InvalidationTracker mInvalidationTracker;
+    private final Executor mExecutor;
+    private final int mLimit;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mSearchRunnable = this::search;
+
+    private final InvalidationTracker.Observer mObserver =
+            new InvalidationTracker.Observer("products") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    mHandler.post(mSearchRunnable);
+                }
+            };
+
+    private final Object mObserverLock = new Object();
+
+    /** Whether the observer is added to the tracker. Guarded by {@link #mObserverLock}. */
+    private boolean mObserverAdded;
+
+    private volatile boolean mActive;
+
+    /**
+     * Add or remove the observer to match whether this is active. onActive and onInactive may
+     * run in quick succession and their updates may run out of order on the executor, so each
+     * one applies the latest state instead of its own.
+     */
+    private final Runnable mUpdateObserver = () -> {
+        synchronized (mObserverLock) {
+            if (mActive && !mObserverAdded) {
+                mInvalidationTracker.addObserver(mObserver);
+                mObserverAdded = true;
+            } else if (!mActive && mObserverAdded) {
+                mInvalidationTracker.removeObserver(mObserver);
+                mObserverAdded = false;
+            }
+        }
+    };
+
+    private String mMatchQuery;
+
+    /** Incremented for every search, so the results of a superseded one can be dropped. */
+    private volatile int mGeneration;
+
+    private FutureTask<Void> mPendingSearch;
+
+    ProductSearchLiveData(DataRepository repository, InvalidationTracker invalidationTracker,
+            Executor executor, LiveData<CharSequence> queries, int limit) {
+        mRepository = repository;
+        mInvalidationTracker = invalidationTracker;
+        mExecutor = executor;
+        mLimit = limit;
+        addSource(queries, query -> {
+            mMatchQuery = ProductSearch.toMatchQuery(query);
+            mHandler.removeCallbacks(mSearchRunnable);
+            cancelPendingSearch();
+            if (mMatchQuery != null) {
+                mHandler.postDelayed(mSearchRunnable, DEBOUNCE_MS);
+            }
+        });
+    }
+
+    @Override
+    protected void onActive() {
+        super.onActive();
+        mActive = true;
+        mExecutor.execute(mUpdateObserver);
+        // The products may have changed while nobody was observing, and a restored query doesn't
+        // need to wait for the user to stop typing
+        if (mMatchQuery != null) {
+            mHandler.removeCallbacks(mSearchRunnable);
+            mHandler.post(mSearchRunnable);
+        }
+    }
+
+    @Override
+    protected void onInactive() {
+        super.onInactive();
+        mActive = false;
+        mExecutor.execute(mUpdateObserver);
+        mHandler.removeCallbacks(mSearchRunnable);
+        cancelPendingSearch();
+    }
+
+    @MainThread
+    private void search() {
+        final String matchQuery = mMatchQuery;
+        if (matchQuery == null) {
+            return;
+        }
+        cancelPendingSearch();
+        final int generation = mGeneration;
+        List<ProductSearchResult> cached = mRepository.getCachedSearch(matchQuery, mLimit, 0);
+        if (cached != null) {
+            setValue(cached);
+            return;
+        }
+        mPendingSearch = new FutureTask<>(() -> {
+            if (generation != mGeneration) {
+                return;
+            }
+            List<ProductSearchResult> results =
+                    mRepository.searchProductsSync(matchQuery, mLimit, 0);
+            mHandler.post(() -> {
+                if (generation == mGeneration) {
+                    setValue(results);
+                }
+            });
+        }, null);
+        mExecutor.execute(mPendingSearch);
+    }
+
+    @MainThread
+    private void cancelPendingSearch() {
+        mGeneration++;
+        if (mPendingSearch != null) {
+            mPendingSearch.cancel(false);
+            mPendingSearch = null;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SortedMap;
+
+/**
+ * Immutable list of products sorted by id, stored in chunks. Applying changes copies only the
+ * chunks they touch and shares the others with the previous snapshot, so changing one product of
+ * a large catalog copies a few dozen references instead of the whole list.
+ */
+final class ProductSnapshot extends AbstractList<ProductEntity> implements RandomAccess {
+
+    @VisibleForTesting
+    static final int CHUNK_SIZE = 64;
+
+    static final ProductSnapshot EMPTY = new ProductSnapshot(new ProductEntity[0][], new int[0], 0);
+
+    /** Chunks sorted by id and never empty. */
+    private final ProductEntity[][] mChunks;
+
+    /** Position of the first product of each chunk. */
+    private final int[] mStarts;
+
+    private final int mSize;
+
+    private ProductSnapshot(ProductEntity[][] chunks, int[] starts, int size) {
+        mChunks = chunks;
+        mStarts = starts;
+        mSize = size;
+    }
+
+    /**
+     * Create a snapshot of {@code products}, which must be sorted by id.
+     */
+    @NonNull
+    static ProductSnapshot of(@NonNull List<ProductEntity> products) {
+        List<ProductEntity[]> chunks = new ArrayList<>();
+        split(products, chunks);
+        return build(chunks);
+    }
+
+    /**
+     * Create a snapshot with the {@code changes} applied, mapping the id of each product that
+     * changed to its new value, or to {@code null} if it was deleted.
+     */
+    @NonNull
+    ProductSnapshot apply(@NonNull SortedMap<Integer, ProductEntity> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        List<ProductEntity[]> chunks = new ArrayList<>(mChunks.length + 1);
+        Iterator<Map.Entry<Integer, ProductEntity>> pending = changes.entrySet().iterator();
+        Map.Entry<Integer, ProductEntity> change = pending.next();
+        for (int i = 0; i < mChunks.length; i++) {
+            ProductEntity[] chunk = mChunks[i];
+            // A chunk takes the changes up to the first id of the next one, the last takes the rest
+            boolean last = i == mChunks.length - 1;
+            int nextFirstId = last ? 0 : mChunks[i + 1][0].getId();
+            if (change == null || (!last && change.getKey() >= nextFirstId)) {
+                chunks.add(chunk);
+                continue;
+            }
+            List<ProductEntity> merged = new ArrayList<>(chunk.length + 1);
+            int index = 0;
+            while (change != null && (last || change.getKey() < nextFirstId)) {
+                int id = change.getKey();
+                while (index < chunk.length && chunk[index].getId() < id) {
+                    merged.add(chunk[index++]);
+                }
+                if (index < chunk.length && chunk[index].getId() == id) {
+                    index++;
+                }
+                if (change.getValue() != null) {
+                    merged.add(change.getValue());
+                }
+                change = pending.hasNext() ? pending.next() : null;
+            }
+            while (index < chunk.length) {
+                merged.add(chunk[index++]);
+            }
+            if (merged.size() > 2 * CHUNK_SIZE) {
+                split(merged, chunks);
+            } else if (!merged.isEmpty()) {
+                chunks.add(merged.toArray(new ProductEntity[0]));
+            }
+        }
+        if (mChunks.length == 0) {
+            List<ProductEntity> added = new ArrayList<>();
+            for (; change != null; change = pending.hasNext() ? pending.next() : null) {
+                if (change.getValue() != null) {
+                    added.add(change.getValue());
+                }
+            }
+            split(added, chunks);
+        }
+        return build(chunks);
+    }
+
+    private static void split(List<ProductEntity> products, List<ProductEntity[]> chunks) {
+        for (int start = 0; start < products.size(); start += CHUNK_SIZE) {
+            List<ProductEntity> chunk =
+                    products.subList(start, Math.min(products.size(), start + CHUNK_SIZE));
+            chunks.add(chunk.toArray(new ProductEntity[0]));
+        }
+    }
+
+    private static ProductSnapshot build(List<ProductEntity[]> chunks) {
+        int[] starts = new int[chunks.size()];
+        int size = 0;
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = size;
+            size += chunks.get(i).length;
+        }
+        return new ProductSnapshot(chunks.toArray(new ProductEntity[0][]), starts, size);
+    }
+
+    @Override
+    public ProductEntity get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + mSize);
+        }
+        int low = 0;
+        int high = mStarts.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return mChunks[low][index - mStarts[low]];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @VisibleForTesting
+    int chunkCount() {
+        return mChunks.length;
+    }
+
+    /** Whether chunk {@code index} is shared with {@code other} rather than copied. */
+    @VisibleForTesting
+    boolean sharesChunk(ProductSnapshot other, int index) {
+        for (ProductEntity[] chunk : other.mChunks) {
+            if (chunk == mChunks[index]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
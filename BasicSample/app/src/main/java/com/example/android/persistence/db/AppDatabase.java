@@ -25,9 +25,12 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import android.content.Context;
+import android.database.Cursor;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
 import com.example.android.persistence.AppExecutors;
+import com.example.android.persistence.BuildConfig;
 import com.example.android.persistence.db.converter.DateConverter;
 import com.example.android.persistence.db.dao.CommentDao;
 import com.example.android.persistence.db.dao.ProductDao;
@@ -37,7 +40,7 @@ import com.example.android.persistence.db.entity.ProductEntity;
 import com.example.android.persistence.db.entity.ProductFtsEntity;
 import java.util.List;
 
-@Database(entities = {ProductEntity.class, ProductFtsEntity.class, CommentEntity.class}, version = 2)
+@Database(entities = {ProductEntity.class, ProductFtsEntity.class, CommentEntity.class}, version = 5)
 @TypeConverters(DateConverter.class)
 public abstract class AppDatabase extends RoomDatabase {
 
@@ -46,18 +49,47 @@ public abstract class AppDatabase extends RoomDatabase {
     @VisibleForTesting
     public static final String DATABASE_NAME = "basic-sample-db";
 
+    /** Prebuilt database, already populated and indexed, copied on first launch. */
+    private static final String PREPACKAGED_DATABASE_ASSET = "databases/basic-sample.db";
+
     public abstract ProductDao productDao();
 
     public abstract CommentDao commentDao();
 
-    private final MutableLiveData<Boolean> mIsDatabaseCreated = new MutableLiveData<>();
+    private MutableLiveData<Boolean> mIsDatabaseCreated = new MutableLiveData<>();
+
+    /** Triggers generated by Room to keep {@link ProductFtsEntity} in sync with the products. */
+    private static final String[] FTS_TRIGGERS = new String[]{
+            "room_fts_content_sync_productsFts_BEFORE_UPDATE",
+            "room_fts_content_sync_productsFts_BEFORE_DELETE",
+            "room_fts_content_sync_productsFts_AFTER_UPDATE",
+            "room_fts_content_sync_productsFts_AFTER_INSERT"};
+
+    private static final String[] CREATE_FTS_TRIGGERS = new String[]{
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_productsFts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `products` BEGIN DELETE FROM `productsFts` "
+                    + "WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_productsFts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `products` BEGIN DELETE FROM `productsFts` "
+                    + "WHERE `docid`=OLD.`rowid`; END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_productsFts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `products` BEGIN INSERT INTO `productsFts`"
+                    + "(`docid`, `name`, `description`) "
+                    + "VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END",
+            "CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_productsFts_AFTER_INSERT "
+                    + "AFTER INSERT ON `products` BEGIN INSERT INTO `productsFts`"
+                    + "(`docid`, `name`, `description`) "
+                    + "VALUES (NEW.`rowid`, NEW.`name`, NEW.`description`); END"};
 
     public static AppDatabase getInstance(final Context context, final AppExecutors executors) {
         if (sInstance == null) {
             synchronized (AppDatabase.class) {
                 if (sInstance == null) {
-                    sInstance = buildDatabase(context.getApplicationContext(), executors);
-                    sInstance.updateDatabaseCreated(context.getApplicationContext());
+                    AppDatabase database = buildDatabase(context.getApplicationContext(),
+                            executors, BuildConfig.PREPACKAGED_DATABASE);
+                    database.updateDatabaseCreated(context.getApplicationContext(),
+                            BuildConfig.PREPACKAGED_DATABASE);
+                    sInstance = database;
                 }
             }
         }
@@ -68,38 +100,70 @@ public abstract class AppDatabase extends RoomDatabase {
      * Build the database. {@link Builder#build()} only sets up the database configuration and
      * creates a new instance of the database.
      * The SQLite database is only created when it's accessed for the first time.
+     * <p>
+     * If {@code prepackaged}, Room copies the database from the assets, already populated and
+     * indexed, instead of creating an empty one that has to be populated.
      */
     private static AppDatabase buildDatabase(final Context appContext,
-            final AppExecutors executors) {
-        return Room.databaseBuilder(appContext, AppDatabase.class, DATABASE_NAME)
-                .addCallback(new Callback() {
-                    @Override
-                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
-                        super.onCreate(db);
-                        executors.diskIO().execute(() -> {
-                            // Add a delay to simulate a long-running operation
-                            addDelay();
-                            // Generate the data for pre-population
-                            AppDatabase database = AppDatabase.getInstance(appContext, executors);
-                            List<ProductEntity> products = DataGenerator.generateProducts();
-                            List<CommentEntity> comments =
-                                    DataGenerator.generateCommentsForProducts(products);
-
-                            insertData(database, products, comments);
-                            // notify that the database was created and it's ready to be used
-                            database.setDatabaseCreated();
-                        });
-                    }
-                })
-            .addMigrations(MIGRATION_1_2)
+            final AppExecutors executors, boolean prepackaged) {
+        Builder<AppDatabase> builder =
+                Room.databaseBuilder(appContext, AppDatabase.class, DATABASE_NAME);
+        builder.addCallback(new Callback() {
+            @Override
+            public void onOpen(@NonNull SupportSQLiteDatabase db) {
+                super.onOpen(db);
+                recoverInterruptedImport(db);
+            }
+        });
+        if (prepackaged) {
+            builder.createFromAsset(PREPACKAGED_DATABASE_ASSET);
+        } else {
+            builder.addCallback(new Callback() {
+                @Override
+                public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                    super.onCreate(db);
+                    executors.diskIO().execute(() -> {
+                        // Add a delay to simulate a long-running operation
+                        addDelay();
+                        // Generate the data for pre-population
+                        AppDatabase database = AppDatabase.getInstance(appContext, executors);
+                        List<ProductEntity> products = DataGenerator.generateProducts();
+                        List<CommentEntity> comments =
+                                DataGenerator.generateCommentsForProducts(products);
+
+                        insertData(database, products, comments);
+                        // notify that the database was created and it's ready to be used
+                        database.setDatabaseCreated();
+                    });
+                }
+            });
+        }
+        return withDiskLanes(builder, executors)
+            .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5)
             .build();
     }
 
+    /**
+     * Run Room's queries on the reader pool and its transactions on the write lane, with
+     * write-ahead logging so the readers don't wait for a running transaction.
+     */
+    @VisibleForTesting
+    static Builder<AppDatabase> withDiskLanes(Builder<AppDatabase> builder,
+            AppExecutors executors) {
+        return builder
+            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+            .setQueryExecutor(executors.diskRead())
+            .setTransactionExecutor(executors.diskIO());
+    }
+
     /**
      * Check whether the database already exists and expose it via {@link #getDatabaseCreated()}
      */
-    private void updateDatabaseCreated(final Context context) {
-        if (context.getDatabasePath(DATABASE_NAME).exists()) {
+    private void updateDatabaseCreated(final Context context, boolean prepackaged) {
+        if (prepackaged) {
+            // Set synchronously, so observers never see the database as still being created
+            mIsDatabaseCreated = new MutableLiveData<>(true);
+        } else if (context.getDatabasePath(DATABASE_NAME).exists()) {
             setDatabaseCreated();
         }
     }
@@ -110,12 +174,87 @@ public abstract class AppDatabase extends RoomDatabase {
 
     private static void insertData(final AppDatabase database, final List<ProductEntity> products,
             final List<CommentEntity> comments) {
-        database.runInTransaction(() -> {
+        database.runInBulkImport(() -> database.runInTransaction(() -> {
             database.productDao().insertAll(products);
             database.commentDao().insertAll(comments);
+        }));
+    }
+
+    /**
+     * Start writing many products at once: until {@link #endBulkImport()}, writing a product
+     * doesn't update the full text index.
+     * <p>
+     * The triggers that keep the index in sync with the products are dropped, and the index is
+     * rebuilt in one pass at the end, which is much faster than updating it row by row. If the
+     * process dies before the end, the missing triggers are noticed the next time the database is
+     * opened and the index is rebuilt then, including the products imported so far.
+     */
+    @WorkerThread
+    public void beginBulkImport() {
+        SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+        runInTransaction(() -> {
+            for (String trigger : FTS_TRIGGERS) {
+                db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+            }
         });
     }
 
+    /**
+     * Rebuild and optimize the full text index, then keep it in sync with the products again.
+     */
+    @WorkerThread
+    public void endBulkImport() {
+        SupportSQLiteDatabase db = getOpenHelper().getWritableDatabase();
+        runInTransaction(() -> rebuildFullTextIndex(db));
+    }
+
+    /**
+     * Run {@code load} between {@link #beginBulkImport()} and {@link #endBulkImport()}, ending the
+     * import even if it fails.
+     */
+    @WorkerThread
+    public void runInBulkImport(Runnable load) {
+        beginBulkImport();
+        try {
+            load.run();
+        } finally {
+            endBulkImport();
+        }
+    }
+
+    /**
+     * Finish an import interrupted before {@link #endBulkImport()}, if any: its products may be
+     * missing from the full text index.
+     */
+    @VisibleForTesting
+    static void recoverInterruptedImport(SupportSQLiteDatabase db) {
+        long triggers;
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' "
+                + "AND name IN (?, ?, ?, ?)", FTS_TRIGGERS)) {
+            cursor.moveToFirst();
+            triggers = cursor.getLong(0);
+        }
+        if (triggers < FTS_TRIGGERS.length) {
+            db.beginTransaction();
+            try {
+                rebuildFullTextIndex(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    private static void rebuildFullTextIndex(SupportSQLiteDatabase db) {
+        db.execSQL("INSERT INTO productsFts(productsFts) VALUES('rebuild')");
+        // Merge the index into a single b-tree, as it won't be built up by the small incremental
+        // updates that are merged over time
+        db.execSQL("INSERT INTO productsFts(productsFts) VALUES('optimize')");
+        for (String createTrigger : CREATE_FTS_TRIGGERS) {
+            db.execSQL(createTrigger);
+        }
+    }
+
     private static void addDelay() {
         try {
             Thread.sleep(4000);
@@ -138,4 +277,60 @@ public abstract class AppDatabase extends RoomDatabase {
 
         }
     };
+
+    /**
+     * Recreate the full text index with prefix indexes, so type-ahead prefix queries don't scan
+     * every term. Room drops the content sync triggers before migrating and recreates them after.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP TABLE IF EXISTS `productsFts`");
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `productsFts` USING FTS4("
+                + "`name` TEXT, `description` TEXT, content=`products`, prefix=`2,3`)");
+            database.execSQL("INSERT INTO productsFts(productsFts) VALUES('rebuild')");
+        }
+    };
+
+    /**
+     * Index the comments by product and date, so they can be paged newest first by key. The
+     * index starts with productId, so it replaces the one on productId alone.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS `index_comments_productId`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_comments_productId_postedAt_id` "
+                + "ON `comments` (`productId`, `postedAt`, `id`)");
+        }
+    };
+
+    /**
+     * Index the products by price and by name, for the sorted listings. The names have to be
+     * compared ignoring case, which SQLite can't add to an existing column, so the table is
+     * copied into a new one. Room drops the full text sync triggers before migrating and
+     * recreates them after, and the copy keeps the ids the full text index refers to.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `products_new` (`id` INTEGER NOT NULL, "
+                + "`name` TEXT COLLATE NOCASE, `description` TEXT, `price` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`id`))");
+            database.execSQL("INSERT INTO `products_new` (`id`, `name`, `description`, `price`) "
+                + "SELECT `id`, `name`, `description`, `price` FROM `products`");
+            database.execSQL("DROP TABLE `products`");
+            database.execSQL("ALTER TABLE `products_new` RENAME TO `products`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_products_price_id` "
+                + "ON `products` (`price`, `id`)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_products_name_id` "
+                + "ON `products` (`name`, `id`)");
+        }
+    };
 }
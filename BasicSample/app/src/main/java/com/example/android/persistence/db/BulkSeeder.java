@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.example.android.persistence.db.converter.DateConverter;
+import com.example.android.persistence.db.entity.CommentEntity;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Writes large generated datasets into the database, to load test the schema at production scale.
+ * <p>
+ * Rows are written through statements compiled once and committed every {@code batchSize} rows,
+ * so neither the rows nor a single huge transaction have to fit in memory. The load runs as a
+ * {@link AppDatabase#beginBulkImport() bulk import}, so the full text index is rebuilt once at
+ * the end instead of being updated row by row.
+ */
+public class BulkSeeder {
+
+    private static final String INSERT_PRODUCT = "INSERT OR REPLACE INTO products "
+            + "(`id`, `name`, `description`, `price`) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_COMMENT = "INSERT INTO comments "
+            + "(`productId`, `text`, `postedAt`) VALUES (?, ?, ?)";
+
+    private final AppDatabase mDatabase;
+
+    private final int mBatchSize;
+
+    public BulkSeeder(@NonNull AppDatabase database, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        mDatabase = database;
+        mBatchSize = batchSize;
+    }
+
+    /**
+     * Generate and write {@code productCount} products with {@code commentsPerProduct} comments
+     * each, then rebuild the full text index.
+     */
+    @WorkerThread
+    @NonNull
+    public Stats seed(int productCount, int commentsPerProduct, long seed) {
+        long start = SystemClock.elapsedRealtime();
+        final long[] rows = new long[2];
+        mDatabase.runInBulkImport(() -> {
+            rows[0] = insertProducts(DataGenerator.streamProducts(productCount, seed));
+            rows[1] = insertComments(
+                    DataGenerator.streamComments(productCount, commentsPerProduct, seed));
+        });
+        return new Stats(rows[0], rows[1], SystemClock.elapsedRealtime() - start);
+    }
+
+    private long insertProducts(Iterator<ProductEntity> products) {
+        SupportSQLiteStatement statement = mDatabase.compileStatement(INSERT_PRODUCT);
+        long rows = 0;
+        try {
+            while (products.hasNext()) {
+                rows += writeBatch(() -> {
+                    ProductEntity product = products.next();
+                    statement.bindLong(1, product.getId());
+                    bindString(statement, 2, product.getName());
+                    bindString(statement, 3, product.getDescription());
+                    statement.bindLong(4, product.getPrice());
+                    statement.executeInsert();
+                }, products);
+            }
+        } finally {
+            close(statement);
+        }
+        return rows;
+    }
+
+    private long insertComments(Iterator<CommentEntity> comments) {
+        SupportSQLiteStatement statement = mDatabase.compileStatement(INSERT_COMMENT);
+        long rows = 0;
+        try {
+            while (comments.hasNext()) {
+                rows += writeBatch(() -> {
+                    CommentEntity comment = comments.next();
+                    statement.bindLong(1, comment.getProductId());
+                    bindString(statement, 2, comment.getText());
+                    Long postedAt = DateConverter.toTimestamp(comment.getPostedAt());
+                    if (postedAt == null) {
+                        statement.bindNull(3);
+                    } else {
+                        statement.bindLong(3, postedAt);
+                    }
+                    statement.executeInsert();
+                }, comments);
+            }
+        } finally {
+            close(statement);
+        }
+        return rows;
+    }
+
+    /**
+     * Write up to {@link #mBatchSize} rows from {@code rows} in a single transaction.
+     */
+    private int writeBatch(final Runnable writeRow, final Iterator<?> rows) {
+        final int[] written = new int[1];
+        mDatabase.runInTransaction(() -> {
+            while (written[0] < mBatchSize && rows.hasNext()) {
+                writeRow.run();
+                written[0]++;
+            }
+        });
+        return written[0];
+    }
+
+    private static void close(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void bindString(SupportSQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * What was written by {@link #seed(int, int, long)} and how fast.
+     */
+    public static class Stats {
+        public final long productRows;
+        public final long commentRows;
+        public final long elapsedMillis;
+
+        Stats(long productRows, long commentRows, long elapsedMillis) {
+            this.productRows = productRows;
+            this.commentRows = commentRows;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRows() {
+            return productRows + commentRows;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? getRows() : getRows() * 1000.0 / elapsedMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d products, %d comments in %d ms (%.0f rows/s)",
+                    productRows, commentRows, elapsedMillis, getRowsPerSecond());
+        }
+    }
+}
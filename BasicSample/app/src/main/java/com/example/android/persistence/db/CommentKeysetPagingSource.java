@@ -0,0 +1,166 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import androidx.room.InvalidationTracker;
+import com.example.android.persistence.db.dao.CommentDao;
+import com.example.android.persistence.db.entity.CommentEntity;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import kotlin.Unit;
+
+/**
+ * Pages through the comments of a product newest first.
+ * <p>
+ * Room's generated paging sources use LIMIT/OFFSET, so every page has to skip all the comments
+ * before it. This one remembers the {@code (postedAt, id)} of the last comment loaded and asks for
+ * the comments right after it instead, so loading a page costs the same wherever it is in the list.
+ * Comments are expected to always have a {@code postedAt} date.
+ */
+public class CommentKeysetPagingSource
+        extends ListenableFuturePagingSource<CommentKeysetPagingSource.Key, CommentEntity> {
+
+    private final CommentDao mCommentDao;
+
+    private final int mProductId;
+
+    private final Executor mExecutor;
+
+    private final InvalidationTracker mInvalidationTracker;
+
+    private final InvalidationTracker.Observer mObserver =
+            new InvalidationTracker.Observer("comments") {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidate();
+                }
+            };
+
+    private final AtomicBoolean mObserving = new AtomicBoolean();
+
+    public CommentKeysetPagingSource(AppDatabase database, int productId) {
+        mCommentDao = database.commentDao();
+        mProductId = productId;
+        mExecutor = database.getQueryExecutor();
+        mInvalidationTracker = database.getInvalidationTracker();
+        registerInvalidatedCallback(() -> {
+            if (mObserving.get()) {
+                mInvalidationTracker.removeObserver(mObserver);
+            }
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Key, CommentEntity>> loadFuture(
+            @NonNull LoadParams<Key> params) {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            mExecutor.execute(() -> {
+                try {
+                    completer.set(load(params));
+                } catch (Exception e) {
+                    completer.set(new LoadResult.Error<>(e));
+                }
+            });
+            return "CommentKeysetPagingSource.load";
+        });
+    }
+
+    private LoadResult<Key, CommentEntity> load(LoadParams<Key> params) {
+        // Like Room's own paging sources, stop being valid when the comments change. Registering
+        // reads the database, so it's done with the first load, on the query executor.
+        if (mObserving.compareAndSet(false, true)) {
+            mInvalidationTracker.addObserver(mObserver);
+            // Invalidated before the observer was added, the callback had nothing to remove
+            if (getInvalid()) {
+                mInvalidationTracker.removeObserver(mObserver);
+            }
+        }
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+        Key key = params.getKey();
+        int limit = params.getLoadSize();
+        if (params instanceof LoadParams.Prepend) {
+            List<CommentEntity> newer = mCommentDao.loadCommentsAfter(mProductId, key.postedAt,
+                    key.id, limit);
+            Collections.reverse(newer);
+            return page(newer, newer.size() < limit, false);
+        }
+        List<CommentEntity> older = key == null
+                ? mCommentDao.loadNewestComments(mProductId, limit)
+                : mCommentDao.loadCommentsBefore(mProductId, key.postedAt, key.id, limit);
+        // Nothing is newer than the first page
+        boolean first = key == null;
+        return page(older, first, older.size() < limit);
+    }
+
+    private static LoadResult<Key, CommentEntity> page(List<CommentEntity> comments,
+            boolean newest, boolean oldest) {
+        Key prevKey = newest || comments.isEmpty() ? null : Key.of(comments.get(0));
+        Key nextKey = oldest || comments.isEmpty()
+                ? null : Key.of(comments.get(comments.size() - 1));
+        return new LoadResult.Page<>(comments, prevKey, nextKey);
+    }
+
+    /**
+     * Refresh from the comment closest to where the user is in the list. Keys are exclusive, so
+     * the key is moved just past that comment to include it in the refreshed page.
+     */
+    @Nullable
+    @Override
+    public Key getRefreshKey(@NonNull PagingState<Key, CommentEntity> state) {
+        Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        CommentEntity comment = state.closestItemToPosition(anchorPosition);
+        if (comment == null) {
+            return null;
+        }
+        return new Key(comment.getPostedAt().getTime(), comment.getId() + 1);
+    }
+
+    /**
+     * Position of a comment in the newest first order.
+     */
+    public static final class Key {
+        final long postedAt;
+        final int id;
+
+        Key(long postedAt, int id) {
+            this.postedAt = postedAt;
+            this.id = id;
+        }
+
+        static Key of(CommentEntity comment) {
+            return new Key(comment.getPostedAt().getTime(), comment.getId());
+        }
+    }
+}
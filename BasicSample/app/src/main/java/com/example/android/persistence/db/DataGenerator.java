@@ -22,7 +22,9 @@ import com.example.android.persistence.model.Product;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -76,4 +78,78 @@ public class DataGenerator {
 
         return comments;
     }
+
+    /**
+     * Lazily generate {@code count} products with ids from 1 to {@code count}, so datasets much
+     * larger than the memory available can be written chunk by chunk.
+     */
+    public static Iterator<ProductEntity> streamProducts(final int count, final long seed) {
+        final Random rnd = new Random(seed);
+        return new GeneratingIterator<ProductEntity>(count) {
+            @Override
+            ProductEntity generate(long position) {
+                int index = (int) position;
+                String first = FIRST[index % FIRST.length];
+                int secondIndex = (index / FIRST.length) % SECOND.length;
+                ProductEntity product = new ProductEntity();
+                product.setId(index + 1);
+                product.setName(first + " " + SECOND[secondIndex] + " " + (index + 1));
+                product.setDescription(product.getName() + " " + DESCRIPTION[secondIndex]);
+                product.setPrice(rnd.nextInt(240));
+                return product;
+            }
+        };
+    }
+
+    /**
+     * Lazily generate {@code commentsPerProduct} comments for each of the products streamed by
+     * {@link #streamProducts(int, long)}. There can be more comments than an int can count.
+     */
+    public static Iterator<CommentEntity> streamComments(final int productCount,
+            final int commentsPerProduct, final long seed) {
+        final Random rnd = new Random(seed);
+        final long now = System.currentTimeMillis();
+        return new GeneratingIterator<CommentEntity>(
+                (long) productCount * commentsPerProduct) {
+            @Override
+            CommentEntity generate(long index) {
+                CommentEntity comment = new CommentEntity();
+                comment.setProductId((int) (index / commentsPerProduct) + 1);
+                comment.setText(COMMENTS[(int) (index % COMMENTS.length)] + " for product "
+                        + comment.getProductId());
+                comment.setPostedAt(new Date(now - rnd.nextInt((int) TimeUnit.DAYS.toSeconds(365))
+                        * 1000L));
+                return comment;
+            }
+        };
+    }
+
+    private abstract static class GeneratingIterator<T> implements Iterator<T> {
+        private final long mCount;
+        private long mIndex;
+
+        GeneratingIterator(long count) {
+            mCount = count;
+        }
+
+        abstract T generate(long index);
+
+        @Override
+        public boolean hasNext() {
+            return mIndex < mCount;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return generate(mIndex++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import com.example.android.persistence.db.dao.ProductDao;
+import com.example.android.persistence.db.entity.ProductMatchInfo;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Ranked full text search over the products.
+ * <p>
+ * Android's SQLite doesn't ship FTS5, so there is no built-in {@code bm25()}. Instead the search
+ * runs in two phases: {@link ProductDao#searchMatchInfo} reads only the FTS4 index and returns the
+ * {@code matchinfo} statistics of every match, which are scored here with Okapi BM25. Only the top
+ * ranked ids are then loaded from the products table, together with their snippets.
+ * <p>
+ * Every match is ranked, even when a short prefix matches most of the catalog: the first phase
+ * doesn't touch the products table, and only the best matches are kept while scoring.
+ */
+public class ProductSearch {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /** Matches in the product name count more than matches in its description. */
+    private static final double[] COLUMN_WEIGHTS = new double[]{3.0, 1.0};
+
+    private static final Comparator<ProductMatchInfo> BY_RANK = (first, second) -> {
+        int compare = Double.compare(first.rank, second.rank);
+        return compare != 0 ? compare : Integer.compare(second.productId, first.productId);
+    };
+
+    private ProductSearch() {
+    }
+
+    /**
+     * Turn what the user typed into an FTS query: every word becomes a prefix term, served by the
+     * prefix indexes, and everything that could be parsed as FTS syntax is dropped.
+     *
+     * @return the query to MATCH, or {@code null} if there is nothing to search for.
+     */
+    @Nullable
+    public static String toMatchQuery(@Nullable CharSequence query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder matchQuery = new StringBuilder();
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && !Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                matchQuery.append(query, start, i).append('*');
+            }
+        }
+        return matchQuery.length() == 0 ? null : matchQuery.toString();
+    }
+
+    /**
+     * Rank the matches and load the products between {@code offset} and {@code offset + limit},
+     * best match first.
+     */
+    @WorkerThread
+    @NonNull
+    public static List<ProductSearchResult> loadTopResults(ProductDao productDao,
+            String matchQuery, List<ProductMatchInfo> matches, int limit, int offset) {
+        List<ProductMatchInfo> top = rank(matches, limit, offset);
+        if (top.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> ids = new ArrayList<>(top.size());
+        for (ProductMatchInfo match : top) {
+            ids.add(match.productId);
+        }
+        Map<Integer, ProductSearchResult> resultsById = new HashMap<>();
+        for (ProductSearchResult result : productDao.loadSearchResults(matchQuery, ids)) {
+            resultsById.put(result.getId(), result);
+        }
+        List<ProductSearchResult> results = new ArrayList<>(top.size());
+        for (ProductMatchInfo match : top) {
+            ProductSearchResult result = resultsById.get(match.productId);
+            // The product may have been deleted in between the two queries
+            if (result != null) {
+                result.rank = match.rank;
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Score every match and keep the best {@code offset + limit} in a bounded heap, so ranking a
+     * large number of matches doesn't sort all of them.
+     */
+    @NonNull
+    static List<ProductMatchInfo> rank(List<ProductMatchInfo> matches, int limit, int offset) {
+        int size = offset + limit;
+        if (limit <= 0 || matches.size() <= offset) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<ProductMatchInfo> best = new PriorityQueue<>(size, BY_RANK);
+        for (ProductMatchInfo match : matches) {
+            match.rank = bm25(match.matchInfo);
+            if (best.size() < size) {
+                best.add(match);
+            } else if (BY_RANK.compare(match, best.peek()) > 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        List<ProductMatchInfo> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, Collections.reverseOrder(BY_RANK));
+        return ranked.subList(Math.min(offset, ranked.size()), ranked.size());
+    }
+
+    /**
+     * Okapi BM25 computed from a {@code matchinfo(productsFts, 'pcnalx')} blob: the phrase and
+     * column counts, the number of rows, the average and current token count of each column,
+     * then for each phrase and column the hits in this row, in all rows and the rows with hits.
+     */
+    static double bm25(byte[] matchInfo) {
+        IntBuffer info = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int phraseCount = info.get(0);
+        int columnCount = info.get(1);
+        int rowCount = info.get(2);
+        int averageLengths = 3;
+        int lengths = averageLengths + columnCount;
+        int hits = lengths + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                int hit = hits + 3 * (phrase * columnCount + column);
+                int termFrequency = info.get(hit);
+                if (termFrequency == 0) {
+                    continue;
+                }
+                int rowsWithHits = info.get(hit + 2);
+                double idf = Math.log((rowCount - rowsWithHits + 0.5) / (rowsWithHits + 0.5));
+                // Terms in more than half of the rows would get a negative weight
+                idf = Math.max(idf, 1e-6);
+                double averageLength = Math.max(info.get(averageLengths + column), 1);
+                double lengthRatio = info.get(lengths + column) / averageLength;
+                double weight = column < COLUMN_WEIGHTS.length ? COLUMN_WEIGHTS[column] : 1.0;
+                score += weight * idf * (termFrequency * (K1 + 1))
+                        / (termFrequency + K1 * (1 - B + B * lengthRatio));
+            }
+        }
+        return score;
+    }
+}
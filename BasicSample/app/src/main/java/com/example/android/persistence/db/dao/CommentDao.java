@@ -33,6 +33,33 @@ public interface CommentDao {
     @Query("SELECT * FROM comments where productId = :productId")
     List<CommentEntity> loadCommentsSync(int productId);
 
+    /**
+     * The newest {@code limit} comments of a product. Together with the queries below it pages
+     * through the comments by key rather than by offset, walking the
+     * {@code (productId, postedAt, id)} index from where the previous page stopped.
+     */
+    @Query("SELECT * FROM comments WHERE productId = :productId "
+            + "ORDER BY postedAt DESC, id DESC LIMIT :limit")
+    List<CommentEntity> loadNewestComments(int productId, int limit);
+
+    /**
+     * The {@code limit} comments posted just before the comment identified by {@code postedAt}
+     * and {@code id}, newest first.
+     */
+    @Query("SELECT * FROM comments WHERE productId = :productId "
+            + "AND (postedAt < :postedAt OR (postedAt = :postedAt AND id < :id)) "
+            + "ORDER BY postedAt DESC, id DESC LIMIT :limit")
+    List<CommentEntity> loadCommentsBefore(int productId, long postedAt, int id, int limit);
+
+    /**
+     * The {@code limit} comments posted just after the comment identified by {@code postedAt}
+     * and {@code id}, oldest first.
+     */
+    @Query("SELECT * FROM comments WHERE productId = :productId "
+            + "AND (postedAt > :postedAt OR (postedAt = :postedAt AND id > :id)) "
+            + "ORDER BY postedAt ASC, id ASC LIMIT :limit")
+    List<CommentEntity> loadCommentsAfter(int productId, long postedAt, int id, int limit);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<CommentEntity> comments);
 }
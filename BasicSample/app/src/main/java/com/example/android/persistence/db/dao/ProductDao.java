@@ -17,29 +17,118 @@
 package com.example.android.persistence.db.dao;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Update;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.entity.ProductMatchInfo;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.db.entity.ProductSummary;
 
 import java.util.List;
 
 @Dao
 public interface ProductDao {
+    String SELECT_PRODUCT_SUMMARIES = "SELECT products.*, "
+        + "(SELECT COUNT(*) FROM comments WHERE comments.productId = products.id) "
+        + "AS commentCount, "
+        + "(SELECT MAX(postedAt) FROM comments WHERE comments.productId = products.id) "
+        + "AS lastCommentAt "
+        + "FROM products";
+
     @Query("SELECT * FROM products")
     LiveData<List<ProductEntity>> loadAllProducts();
 
+    /**
+     * Room generates a {@link PagingSource} that only loads the requested window of rows and
+     * invalidates itself whenever the {@code products} table changes.
+     */
+    @Query("SELECT * FROM products ORDER BY id")
+    PagingSource<Integer, ProductEntity> loadProductsPaged();
+
+    /**
+     * The name column sorts ignoring case, so this reads the rows in the order of its index.
+     */
+    @Query("SELECT * FROM products ORDER BY name, id")
+    PagingSource<Integer, ProductEntity> loadProductsByNamePaged();
+
+    @Query("SELECT * FROM products ORDER BY price, id")
+    PagingSource<Integer, ProductEntity> loadProductsByPricePaged();
+
+    @Query("SELECT * FROM products ORDER BY price DESC, id DESC")
+    PagingSource<Integer, ProductEntity> loadProductsByPriceDescendingPaged();
+
+    /**
+     * Products priced between {@code minPrice} and {@code maxPrice} included, cheapest first.
+     */
+    @Query("SELECT * FROM products WHERE price BETWEEN :minPrice AND :maxPrice "
+        + "ORDER BY price, id")
+    PagingSource<Integer, ProductEntity> loadProductsInPriceRangePaged(int minPrice, int maxPrice);
+
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertAll(List<ProductEntity> products);
 
     @Query("select * from products where id = :productId")
     LiveData<ProductEntity> loadProduct(int productId);
 
+    /**
+     * The comment statistics are computed by correlated subqueries answered from the
+     * {@code productId} index of the comments, so each page only aggregates the comments of its
+     * own products instead of grouping the whole comments table.
+     */
+    @Query(SELECT_PRODUCT_SUMMARIES + " ORDER BY products.id")
+    PagingSource<Integer, ProductSummary> loadProductSummariesPaged();
+
+    @Query(SELECT_PRODUCT_SUMMARIES + " WHERE products.id = :productId")
+    LiveData<ProductSummary> loadProductSummary(int productId);
+
     @Query("select * from products where id = :productId")
     ProductEntity loadProductSync(int productId);
 
+    @Query("SELECT * FROM products ORDER BY id")
+    List<ProductEntity> loadAllProductsSync();
+
+    /**
+     * Load just the given products, to refresh the ones that changed. Products that don't exist
+     * anymore are missing from the result.
+     */
+    @Query("SELECT * FROM products WHERE id IN (:productIds) ORDER BY id")
+    List<ProductEntity> loadProductsSync(List<Integer> productIds);
+
+    /**
+     * Unlike {@link #insertAll(List)}, doesn't replace existing products, which would delete
+     * their comments.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertNew(List<ProductEntity> products);
+
+    @Update
+    void updateAll(List<ProductEntity> products);
+
+    @Query("DELETE FROM products WHERE id IN (:productIds)")
+    void deleteAll(List<Integer> productIds);
+
     @Query("SELECT products.* FROM products JOIN productsFts ON (products.id = productsFts.rowid) "
         + "WHERE productsFts MATCH :query")
     LiveData<List<ProductEntity>> searchAllProducts(String query);
+
+    /**
+     * First phase of a ranked search: only reads the full text index, returning every matching id
+     * with the statistics needed to rank it.
+     */
+    @Query("SELECT rowid AS productId, matchinfo(productsFts, 'pcnalx') AS matchInfo "
+        + "FROM productsFts WHERE productsFts MATCH :query")
+    List<ProductMatchInfo> searchMatchInfo(String query);
+
+    /**
+     * Second phase of a ranked search: loads the top ranked products, with a highlighted snippet
+     * of the text that matched.
+     */
+    @Query("SELECT products.*, snippet(productsFts, char(2), char(3), '…', -1, 12) AS snippet "
+        + "FROM products JOIN productsFts ON (products.id = productsFts.rowid) "
+        + "WHERE productsFts MATCH :query AND products.id IN (:productIds)")
+    List<ProductSearchResult> loadSearchResults(String query, List<Integer> productIds);
 }
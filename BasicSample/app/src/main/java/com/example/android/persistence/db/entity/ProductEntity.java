@@ -16,15 +16,24 @@
 
 package com.example.android.persistence.db.entity;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.example.android.persistence.model.Product;
 
-@Entity(tableName = "products")
+/**
+ * The indexes cover the price filters and the sorted listings, so browsing the catalog by price
+ * or by name reads the rows in index order instead of sorting the whole table.
+ */
+@Entity(tableName = "products",
+        indices = {@Index(value = {"price", "id"}), @Index(value = {"name", "id"})})
 public class ProductEntity implements Product {
     @PrimaryKey
     private int id;
+    // Sorted, and indexed, ignoring case
+    @ColumnInfo(collate = ColumnInfo.NOCASE)
     private String name;
     private String description;
     private int price;
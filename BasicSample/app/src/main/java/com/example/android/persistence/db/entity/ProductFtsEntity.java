@@ -19,8 +19,12 @@ package com.example.android.persistence.db.entity;
 import androidx.room.Entity;
 import androidx.room.Fts4;
 
+/**
+ * Full text index over the products. The prefix indexes keep type-ahead queries such as
+ * {@code monk*} from scanning every term in the index.
+ */
 @Entity(tableName = "productsFts")
-@Fts4(contentEntity = ProductEntity.class)
+@Fts4(contentEntity = ProductEntity.class, prefix = {2, 3})
 public class ProductFtsEntity {
   private String name;
   private String description;
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.entity;
+
+import androidx.room.Ignore;
+
+/**
+ * The id of a product matching a full text query together with the raw FTS4
+ * {@code matchinfo(productsFts, 'pcnalx')} blob used to rank it.
+ */
+public class ProductMatchInfo {
+    public int productId;
+    public byte[] matchInfo;
+
+    @Ignore
+    public double rank;
+}
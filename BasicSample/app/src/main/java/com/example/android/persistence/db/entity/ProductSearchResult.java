@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.entity;
+
+import androidx.room.Embedded;
+import androidx.room.Ignore;
+import com.example.android.persistence.model.Product;
+
+/**
+ * A product returned by a full text search, with its relevance and a snippet of the matching text.
+ * The matched terms in the snippet are wrapped in {@link #SNIPPET_START} and {@link #SNIPPET_END}.
+ */
+public class ProductSearchResult implements Product {
+
+    public static final char SNIPPET_START = '\u0002';
+    public static final char SNIPPET_END = '\u0003';
+
+    @Embedded
+    public ProductEntity product;
+
+    public String snippet;
+
+    @Ignore
+    public double rank;
+
+    @Override
+    public int getId() {
+        return product.getId();
+    }
+
+    @Override
+    public String getName() {
+        return product.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return product.getDescription();
+    }
+
+    @Override
+    public int getPrice() {
+        return product.getPrice();
+    }
+
+    public String getSnippet() {
+        return snippet;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db.entity;
+
+import androidx.annotation.Nullable;
+import androidx.room.Embedded;
+import com.example.android.persistence.model.Product;
+
+import java.util.Date;
+
+/**
+ * A product with statistics about its comments, computed by the same query that loads it.
+ */
+public class ProductSummary implements Product {
+
+    @Embedded
+    public ProductEntity product;
+
+    public int commentCount;
+
+    /** When the latest comment was posted, {@code null} if the product has no comments. */
+    @Nullable
+    public Date lastCommentAt;
+
+    @Override
+    public int getId() {
+        return product.getId();
+    }
+
+    @Override
+    public String getName() {
+        return product.getName();
+    }
+
+    @Override
+    public String getDescription() {
+        return product.getDescription();
+    }
+
+    @Override
+    public int getPrice() {
+        return product.getPrice();
+    }
+
+    public int getCommentCount() {
+        return commentCount;
+    }
+
+    @Nullable
+    public Date getLastCommentAt() {
+        return lastCommentAt;
+    }
+}
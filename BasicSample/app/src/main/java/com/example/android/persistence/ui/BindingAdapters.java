@@ -17,12 +17,51 @@
 package com.example.android.persistence.ui;
 
 import androidx.databinding.BindingAdapter;
+import android.graphics.Typeface;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.style.StyleSpan;
 import android.view.View;
+import android.widget.TextView;
 
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.model.Product;
 
 public class BindingAdapters {
     @BindingAdapter("visibleGone")
     public static void showHide(View view, boolean show) {
         view.setVisibility(show ? View.VISIBLE : View.GONE);
     }
-}
\ No newline at end of file
+
+    /**
+     * Show the description of a product or, for a search result, the snippet of text that matched
+     * with the matching terms in bold.
+     */
+    @BindingAdapter("productDescription")
+    public static void showDescription(TextView view, Product product) {
+        if (product instanceof ProductSearchResult
+                && ((ProductSearchResult) product).getSnippet() != null) {
+            view.setText(highlight(((ProductSearchResult) product).getSnippet()));
+        } else {
+            view.setText(product == null ? null : product.getDescription());
+        }
+    }
+
+    private static CharSequence highlight(String snippet) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        int start = -1;
+        for (int i = 0; i < snippet.length(); i++) {
+            char c = snippet.charAt(i);
+            if (c == ProductSearchResult.SNIPPET_START) {
+                start = text.length();
+            } else if (c == ProductSearchResult.SNIPPET_END && start >= 0) {
+                text.setSpan(new StyleSpan(Typeface.BOLD), start, text.length(),
+                        Spannable.SPAN_EXCLUSIVE_EXCLUSIVE);
+                start = -1;
+            } else {
+                text.append(c);
+            }
+        }
+        return text;
+    }
+}
@@ -19,9 +19,8 @@ package com.example.android.persistence.ui;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.databinding.DataBindingUtil;
-import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.paging.PagingDataAdapter;
 import androidx.recyclerview.widget.DiffUtil;
-import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import android.text.TextUtils;
 import android.view.LayoutInflater;
@@ -31,13 +30,23 @@ import com.example.android.persistence.databinding.CommentItemBinding;
 import com.example.android.persistence.db.entity.CommentEntity;
 import com.example.android.persistence.R;
 
-public class CommentAdapter extends ListAdapter<CommentEntity, CommentAdapter.CommentViewHolder> {
+import java.util.concurrent.Executor;
+
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.ExecutorsKt;
+
+public class CommentAdapter
+        extends PagingDataAdapter<CommentEntity, CommentAdapter.CommentViewHolder> {
 
     @Nullable
     private final CommentClickCallback mCommentClickCallback;
 
-    CommentAdapter(@Nullable CommentClickCallback commentClickCallback) {
-        super(new AsyncDifferConfig.Builder<>(new DiffUtil.ItemCallback<CommentEntity>() {
+    /**
+     * Pages are diffed on {@code diffExecutor} instead of the shared default dispatcher.
+     */
+    CommentAdapter(@Nullable CommentClickCallback commentClickCallback,
+            @NonNull Executor diffExecutor) {
+        super(new DiffUtil.ItemCallback<CommentEntity>() {
             @Override
             public boolean areItemsTheSame(@NonNull CommentEntity old,
                     @NonNull CommentEntity comment) {
@@ -52,7 +61,7 @@ public class CommentAdapter extends ListAdapter<CommentEntity, CommentAdapter.Co
                         && old.getProductId() == comment.getProductId()
                         && TextUtils.equals(old.getText(), comment.getText());
             }
-        }).build());
+        }, Dispatchers.getMain(), ExecutorsKt.from(diffExecutor));
         mCommentClickCallback = commentClickCallback;
     }
 
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.ui;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.databinding.DataBindingUtil;
+import androidx.paging.PagingDataAdapter;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import com.example.android.persistence.R;
+import com.example.android.persistence.databinding.ProductItemBinding;
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import java.util.concurrent.Executor;
+
+import kotlinx.coroutines.Dispatchers;
+import kotlinx.coroutines.ExecutorsKt;
+
+/**
+ * Paged version of {@link ProductAdapter}: only the pages around the visible items are loaded and
+ * the pages are diffed on {@code diffExecutor}, where {@link PagingDataAdapter} stops diffing
+ * data that has been superseded by newer data.
+ */
+public class PagedProductAdapter
+        extends PagingDataAdapter<ProductEntity, ProductAdapter.ProductViewHolder> {
+
+    @Nullable
+    private final ProductClickCallback mProductClickCallback;
+
+    public PagedProductAdapter(@Nullable ProductClickCallback clickCallback,
+            @NonNull Executor diffExecutor) {
+        super(new ProductDiffCallback<>(), Dispatchers.getMain(),
+                ExecutorsKt.from(diffExecutor));
+        mProductClickCallback = clickCallback;
+    }
+
+    @Override
+    @NonNull
+    public ProductAdapter.ProductViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+            int viewType) {
+        ProductItemBinding binding = DataBindingUtil
+                .inflate(LayoutInflater.from(parent.getContext()), R.layout.product_item,
+                        parent, false);
+        binding.setCallback(mProductClickCallback);
+        return new ProductAdapter.ProductViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ProductAdapter.ProductViewHolder holder, int position) {
+        holder.binding.setProduct(getItem(position));
+        holder.binding.executePendingBindings();
+    }
+}
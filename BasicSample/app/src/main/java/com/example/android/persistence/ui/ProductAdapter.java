@@ -19,66 +19,45 @@ package com.example.android.persistence.ui;
 import androidx.annotation.NonNull;
 import androidx.databinding.DataBindingUtil;
 import androidx.annotation.Nullable;
-import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.ViewGroup;
 
+import com.example.android.persistence.LatestOnlyExecutor;
 import com.example.android.persistence.databinding.ProductItemBinding;
 import com.example.android.persistence.model.Product;
 import com.example.android.persistence.R;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
-public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
-
-    List<? extends Product> mProductList;
+/**
+ * Shows a list of products. New lists are diffed on {@code diffExecutor} and only applied on the
+ * main thread; a list superseded before its diff started is never diffed at all.
+ */
+public class ProductAdapter extends ListAdapter<Product, ProductAdapter.ProductViewHolder> {
 
     @Nullable
     private final ProductClickCallback mProductClickCallback;
 
-    public ProductAdapter(@Nullable ProductClickCallback clickCallback) {
+    public ProductAdapter(@Nullable ProductClickCallback clickCallback,
+            @NonNull Executor diffExecutor) {
+        // The differ only ever applies the diff of the latest list, against the list shown when
+        // that one was submitted, so dropping the older pending diffs is safe
+        super(new AsyncDifferConfig.Builder<>(new ProductDiffCallback<Product>())
+                .setBackgroundThreadExecutor(new LatestOnlyExecutor(diffExecutor))
+                .build());
         mProductClickCallback = clickCallback;
         setHasStableIds(true);
     }
 
+    @SuppressWarnings("unchecked")
     public void setProductList(final List<? extends Product> productList) {
-        if (mProductList == null) {
-            mProductList = productList;
-            notifyItemRangeInserted(0, productList.size());
-        } else {
-            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
-                @Override
-                public int getOldListSize() {
-                    return mProductList.size();
-                }
-
-                @Override
-                public int getNewListSize() {
-                    return productList.size();
-                }
-
-                @Override
-                public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
-                    return mProductList.get(oldItemPosition).getId() ==
-                            productList.get(newItemPosition).getId();
-                }
-
-                @Override
-                public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
-                    Product newProduct = productList.get(newItemPosition);
-                    Product oldProduct = mProductList.get(oldItemPosition);
-                    return newProduct.getId() == oldProduct.getId()
-                            && TextUtils.equals(newProduct.getDescription(), oldProduct.getDescription())
-                            && TextUtils.equals(newProduct.getName(), oldProduct.getName())
-                            && newProduct.getPrice() == oldProduct.getPrice();
-                }
-            });
-            mProductList = productList;
-            result.dispatchUpdatesTo(this);
-        }
+        // Only read, so the list can be shown as is; submitting the same list again is a no-op
+        submitList((List<Product>) productList);
     }
 
     @Override
@@ -93,18 +72,13 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        holder.binding.setProduct(mProductList.get(position));
+        holder.binding.setProduct(getItem(position));
         holder.binding.executePendingBindings();
     }
 
-    @Override
-    public int getItemCount() {
-        return mProductList == null ? 0 : mProductList.size();
-    }
-
     @Override
     public long getItemId(int position) {
-        return mProductList.get(position).getId();
+        return getItem(position).getId();
     }
 
     static class ProductViewHolder extends RecyclerView.ViewHolder {
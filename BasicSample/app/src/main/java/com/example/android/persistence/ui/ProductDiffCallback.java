@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.ui;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.model.Product;
+
+import java.util.Objects;
+
+/**
+ * Compares products for the adapters' diffing. Runs on the diffing thread for every pair of
+ * products compared, so the cheap fields are compared before the strings. The snippet of a
+ * search result is shown instead of its description, so it is compared too.
+ */
+public class ProductDiffCallback<T extends Product> extends DiffUtil.ItemCallback<T> {
+
+    @Override
+    public boolean areItemsTheSame(@NonNull T old, @NonNull T product) {
+        return old.getId() == product.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull T old, @NonNull T product) {
+        return old == product
+                || (old.getId() == product.getId()
+                && old.getPrice() == product.getPrice()
+                && Objects.equals(old.getName(), product.getName())
+                && Objects.equals(old.getDescription(), product.getDescription())
+                && sameSnippet(old, product));
+    }
+
+    private static boolean sameSnippet(Product old, Product product) {
+        if (!(old instanceof ProductSearchResult) || !(product instanceof ProductSearchResult)) {
+            return true;
+        }
+        return Objects.equals(((ProductSearchResult) old).getSnippet(),
+                ((ProductSearchResult) product).getSnippet());
+    }
+}
@@ -26,11 +26,15 @@ import androidx.annotation.Nullable;
 import androidx.databinding.DataBindingUtil;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
 
+import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.R;
 import com.example.android.persistence.databinding.ProductFragmentBinding;
 import com.example.android.persistence.viewmodel.ProductViewModel;
 
+import kotlin.Unit;
+
 public class ProductFragment extends Fragment {
 
     private static final String KEY_PRODUCT_ID = "product_id";
@@ -47,7 +51,8 @@ public class ProductFragment extends Fragment {
         mBinding = DataBindingUtil.inflate(inflater, R.layout.product_fragment, container, false);
 
         // Create and set the adapter for the RecyclerView.
-        mCommentAdapter = new CommentAdapter(mCommentClickCallback);
+        mCommentAdapter = new CommentAdapter(mCommentClickCallback,
+                ((BasicApp) requireActivity().getApplication()).getAppExecutors().diffing());
         mBinding.commentList.setAdapter(mCommentAdapter);
         return mBinding.getRoot();
     }
@@ -71,15 +76,19 @@ public class ProductFragment extends Fragment {
     }
 
     private void subscribeToModel(final ProductViewModel model) {
-        // Observe comments
-        model.getComments().observe(getViewLifecycleOwner(), commentEntities -> {
-            if (commentEntities != null) {
-                mBinding.setIsLoading(false);
-                mCommentAdapter.submitList(commentEntities);
-            } else {
-                mBinding.setIsLoading(true);
+        // Show the loading message until the first page of comments is loaded
+        mBinding.setIsLoading(true);
+        mCommentAdapter.addLoadStateListener(loadStates -> {
+            if (mBinding != null) {
+                mBinding.setIsLoading(loadStates.getRefresh() instanceof LoadState.Loading);
             }
+            return Unit.INSTANCE;
         });
+
+        // Observe comments
+        model.getComments().observe(getViewLifecycleOwner(), commentEntities ->
+                mCommentAdapter.submitData(getViewLifecycleOwner().getLifecycle(),
+                        commentEntities));
     }
 
     @Override
@@ -18,9 +18,12 @@ package com.example.android.persistence.ui;
 
 import android.os.Bundle;
 import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -29,13 +32,17 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.R;
 import com.example.android.persistence.databinding.ListFragmentBinding;
-import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.model.ProductSort;
 import com.example.android.persistence.viewmodel.ProductListViewModel;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class ProductListFragment extends Fragment {
 
@@ -43,6 +50,8 @@ public class ProductListFragment extends Fragment {
 
     private ProductAdapter mProductAdapter;
 
+    private PagedProductAdapter mPagedProductAdapter;
+
     private ListFragmentBinding mBinding;
 
     @Nullable
@@ -51,8 +60,11 @@ public class ProductListFragment extends Fragment {
             @Nullable Bundle savedInstanceState) {
         mBinding = DataBindingUtil.inflate(inflater, R.layout.list_fragment, container, false);
 
-        mProductAdapter = new ProductAdapter(mProductClickCallback);
-        mBinding.productsList.setAdapter(mProductAdapter);
+        Executor diffExecutor = ((BasicApp) requireActivity().getApplication())
+                .getAppExecutors().diffing();
+        mProductAdapter = new ProductAdapter(mProductClickCallback, diffExecutor);
+        mPagedProductAdapter = new PagedProductAdapter(mProductClickCallback, diffExecutor);
+        mBinding.productsList.setAdapter(mPagedProductAdapter);
 
         return mBinding.getRoot();
     }
@@ -68,10 +80,72 @@ public class ProductListFragment extends Fragment {
             viewModel.setQuery(query);
         });
 
-        subscribeUi(viewModel.getProducts());
+        // Search as the user types, the search itself waits for a pause in typing
+        mBinding.productsSearchBox.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                viewModel.setQuery(s.toString());
+            }
+        });
+
+        // Browse the catalog in the order picked by the user
+        ProductSort sort = viewModel.getSort().getValue();
+        mBinding.productsSort.setSelection(sort == null ? 0 : sort.ordinal(), false);
+        mBinding.productsSort.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                viewModel.setSort(ProductSort.values()[position]);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+
+        subscribeUi(viewModel);
+    }
+
+    private void subscribeUi(ProductListViewModel viewModel) {
+        // Browse the catalog page by page, but show search results as a plain list
+        viewModel.getQuery().observe(getViewLifecycleOwner(), query -> {
+            if (TextUtils.isEmpty(query)) {
+                showAdapter(mPagedProductAdapter);
+                mBinding.productsSort.setVisibility(View.VISIBLE);
+            } else {
+                // Search results are ranked by relevance
+                showAdapter(mProductAdapter);
+                mBinding.productsSort.setVisibility(View.GONE);
+            }
+        });
+
+        viewModel.getPagedProducts().observe(getViewLifecycleOwner(), pagingData -> {
+            mBinding.setIsLoading(false);
+            mPagedProductAdapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
+            mBinding.executePendingBindings();
+        });
+
+        subscribeSearchResults(viewModel.getSearchResults());
+    }
+
+    /**
+     * Swap to {@code adapter} when switching between browsing and searching. While the user keeps
+     * typing, the search results are only submitted to the adapter already shown, which diffs them.
+     */
+    private void showAdapter(RecyclerView.Adapter<?> adapter) {
+        if (mBinding.productsList.getAdapter() != adapter) {
+            mBinding.productsList.swapAdapter(adapter, true);
+        }
     }
 
-    private void subscribeUi(LiveData<List<ProductEntity>> liveData) {
+    private void subscribeSearchResults(LiveData<List<ProductSearchResult>> liveData) {
         // Update the list when the data changes
         liveData.observe(getViewLifecycleOwner(), myProducts -> {
             if (myProducts != null) {
@@ -90,6 +164,7 @@ public class ProductListFragment extends Fragment {
     public void onDestroyView() {
         mBinding = null;
         mProductAdapter = null;
+        mPagedProductAdapter = null;
         super.onDestroyView();
     }
 
@@ -17,27 +17,34 @@
 package com.example.android.persistence.viewmodel;
 
 import android.app.Application;
-import android.text.TextUtils;
 
 import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.DataRepository;
 import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.db.entity.ProductSearchResult;
+import com.example.android.persistence.model.ProductSort;
 
 import java.util.List;
 
 import androidx.annotation.NonNull;
-import androidx.arch.core.util.Function;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.SavedStateHandle;
 import androidx.lifecycle.Transformations;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 public class ProductListViewModel extends AndroidViewModel {
     private static final String QUERY_KEY = "QUERY";
+    private static final String SORT_KEY = "SORT";
+
+    /** Number of best matching products shown for a search. */
+    private static final int SEARCH_LIMIT = 50;
 
     private final SavedStateHandle mSavedStateHandler;
     private final DataRepository mRepository;
-    private final LiveData<List<ProductEntity>> mProducts;
+    private final LiveData<List<ProductSearchResult>> mSearchResults;
+    private final LiveData<PagingData<ProductEntity>> mPagedProducts;
 
     public ProductListViewModel(@NonNull Application application,
             @NonNull SavedStateHandle savedStateHandle) {
@@ -46,30 +53,53 @@ public class ProductListViewModel extends AndroidViewModel {
 
         mRepository = ((BasicApp) application).getRepository();
 
-        // Use the savedStateHandle.getLiveData() as the input to switchMap,
-        // allowing us to recalculate what LiveData to get from the DataRepository
-        // based on what query the user has entered
-        mProducts = Transformations.switchMap(
-                savedStateHandle.getLiveData("QUERY", null),
-                (Function<CharSequence, LiveData<List<ProductEntity>>>) query -> {
-                    if (TextUtils.isEmpty(query)) {
-                        return mRepository.getProducts();
-                    }
-                    return mRepository.searchProducts("*" + query + "*");
-                });
+        // Use the savedStateHandle.getLiveData() as the input of the search, so the query
+        // the user has entered survives process death
+        mSearchResults = mRepository.searchProducts(getQuery(), SEARCH_LIMIT);
+
+        // Cache the pages in the ViewModel scope so a configuration change doesn't reload them
+        mPagedProducts = PagingLiveData.cachedIn(
+                Transformations.switchMap(getSort(), mRepository::getProductsPaged), this);
     }
 
     public void setQuery(CharSequence query) {
         // Save the user's query into the SavedStateHandle.
         // This ensures that we retain the value across process death
-        // and is used as the input into the Transformations.switchMap above
+        // and is used as the input of the search above
         mSavedStateHandler.set(QUERY_KEY, query);
     }
 
     /**
-     * Expose the LiveData Products query so the UI can observe it.
+     * Expose the current search query, {@code null} or empty when the user is browsing.
+     */
+    public LiveData<CharSequence> getQuery() {
+        return mSavedStateHandler.getLiveData(QUERY_KEY, null);
+    }
+
+    public void setSort(ProductSort sort) {
+        // Saved like the query, so the order survives process death
+        mSavedStateHandler.set(SORT_KEY, sort);
+    }
+
+    /**
+     * Expose the order in which the catalog is browsed.
+     */
+    public LiveData<ProductSort> getSort() {
+        return mSavedStateHandler.getLiveData(SORT_KEY, ProductSort.ID);
+    }
+
+    /**
+     * Expose the LiveData search results so the UI can observe them.
+     */
+    public LiveData<List<ProductSearchResult>> getSearchResults() {
+        return mSearchResults;
+    }
+
+    /**
+     * Expose the paged Products, in the current order, so the UI can browse the whole catalog
+     * without loading it.
      */
-    public LiveData<List<ProductEntity>> getProducts() {
-        return mProducts;
+    public LiveData<PagingData<ProductEntity>> getPagedProducts() {
+        return mPagedProducts;
     }
 }
@@ -22,35 +22,36 @@ import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModel;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.annotation.NonNull;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
 import com.example.android.persistence.BasicApp;
 import com.example.android.persistence.DataRepository;
 import com.example.android.persistence.db.entity.CommentEntity;
 import com.example.android.persistence.db.entity.ProductEntity;
 
-import java.util.List;
-
 public class ProductViewModel extends AndroidViewModel {
 
     private final LiveData<ProductEntity> mObservableProduct;
 
     private final int mProductId;
 
-    private final LiveData<List<CommentEntity>> mObservableComments;
+    private final LiveData<PagingData<CommentEntity>> mObservableComments;
 
     public ProductViewModel(@NonNull Application application, DataRepository repository,
             final int productId) {
         super(application);
         mProductId = productId;
 
-        mObservableComments = repository.loadComments(mProductId);
+        mObservableComments = PagingLiveData.cachedIn(repository.loadCommentsPaged(mProductId),
+                this);
         mObservableProduct = repository.loadProduct(mProductId);
     }
 
     /**
-     * Expose the LiveData Comments query so the UI can observe it.
+     * Expose the paged Comments, newest first, so the UI can observe them.
      */
-    public LiveData<List<CommentEntity>> getComments() {
+    public LiveData<PagingData<CommentEntity>> getComments() {
         return mObservableComments;
     }
 
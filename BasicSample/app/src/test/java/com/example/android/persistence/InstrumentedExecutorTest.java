@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the InstrumentedExecutor.
+ */
+public class InstrumentedExecutorTest {
+
+    private final List<Runnable> mQueued = new ArrayList<>();
+
+    private final InstrumentedExecutor mExecutor =
+            new InstrumentedExecutor("test", mQueued::add);
+
+    @Test
+    public void recordsQueueDepthUntilTasksStart() {
+        mExecutor.execute(() -> { });
+        mExecutor.execute(() -> { });
+
+        assertEquals(2, mExecutor.snapshot().queueDepth);
+
+        mQueued.get(0).run();
+        InstrumentedExecutor.Stats stats = mExecutor.snapshot();
+        assertEquals(1, stats.queueDepth);
+        assertEquals(2, stats.maxQueueDepth);
+        assertEquals(1, stats.waitTime.getCount());
+        assertEquals(1, stats.runTime.getCount());
+    }
+
+    @Test
+    public void recordsRunTime() {
+        mExecutor.execute(() -> sleep(20));
+        mQueued.get(0).run();
+
+        LatencyHistogram.Snapshot runTime = mExecutor.snapshot().runTime;
+        assertTrue(runTime.getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertTrue(runTime.getPercentileNanos(50) >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void countsRejectedTasks() {
+        InstrumentedExecutor executor = new InstrumentedExecutor("rejecting", command -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            executor.execute(() -> { });
+            fail("The task should have been rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        InstrumentedExecutor.Stats stats = executor.snapshot();
+        assertEquals(1, stats.rejected);
+        assertEquals(0, stats.queueDepth);
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100, snapshot.getCount());
+        // 100us falls in the [64us, 128us) bucket
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(128), snapshot.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), snapshot.getPercentileNanos(100));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), snapshot.getMaxNanos());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
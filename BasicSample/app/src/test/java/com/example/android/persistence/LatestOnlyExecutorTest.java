@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the LatestOnlyExecutor.
+ */
+public class LatestOnlyExecutorTest {
+
+    private final List<Runnable> mQueued = new ArrayList<>();
+
+    private final List<String> mRan = new ArrayList<>();
+
+    private final LatestOnlyExecutor mExecutor = new LatestOnlyExecutor(mQueued::add);
+
+    @Test
+    public void dropsTasksSupersededBeforeTheyStart() {
+        mExecutor.execute(() -> mRan.add("first"));
+        mExecutor.execute(() -> mRan.add("second"));
+        mExecutor.execute(() -> mRan.add("third"));
+
+        runQueued();
+
+        assertEquals(Arrays.asList("third"), mRan);
+    }
+
+    @Test
+    public void runsTasksSubmittedAfterThePreviousOneStarted() {
+        mExecutor.execute(() -> mRan.add("first"));
+        runQueued();
+        mExecutor.execute(() -> mRan.add("second"));
+        runQueued();
+
+        assertEquals(Arrays.asList("first", "second"), mRan);
+    }
+
+    private void runQueued() {
+        List<Runnable> queued = new ArrayList<>(mQueued);
+        mQueued.clear();
+        for (Runnable runnable : queued) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.android.persistence.db.entity.ProductEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for the ProductSnapshot.
+ */
+public class ProductSnapshotTest {
+
+    private static final int SIZE = 10 * ProductSnapshot.CHUNK_SIZE;
+
+    private final List<ProductEntity> mProducts = products(SIZE);
+
+    private final ProductSnapshot mSnapshot = ProductSnapshot.of(mProducts);
+
+    @Test
+    public void containsAllProducts() {
+        assertEquals(mProducts, mSnapshot);
+        assertEquals(10, mSnapshot.chunkCount());
+    }
+
+    @Test
+    public void updateCopiesOnlyTheChunkOfTheProduct() {
+        ProductEntity updated = product(100, 42);
+        SortedMap<Integer, ProductEntity> changes = new TreeMap<>();
+        changes.put(100, updated);
+
+        ProductSnapshot snapshot = mSnapshot.apply(changes);
+
+        mProducts.set(100, updated);
+        assertEquals(mProducts, snapshot);
+        for (int i = 0; i < snapshot.chunkCount(); i++) {
+            assertEquals(i != 100 / ProductSnapshot.CHUNK_SIZE, snapshot.sharesChunk(mSnapshot, i));
+        }
+    }
+
+    @Test
+    public void insertsAndDeletes() {
+        ProductEntity first = product(-1, 1);
+        ProductEntity last = product(SIZE + 10, 1);
+        SortedMap<Integer, ProductEntity> changes = new TreeMap<>();
+        changes.put(0, null);
+        changes.put(SIZE / 2, null);
+        changes.put(last.getId(), last);
+        changes.put(first.getId(), first);
+
+        ProductSnapshot snapshot = mSnapshot.apply(changes);
+
+        mProducts.remove(SIZE / 2);
+        mProducts.remove(0);
+        mProducts.add(0, first);
+        mProducts.add(last);
+        assertEquals(mProducts, snapshot);
+    }
+
+    @Test
+    public void splitsChunksThatGrowTooLarge() {
+        SortedMap<Integer, ProductEntity> changes = new TreeMap<>();
+        for (int id = SIZE; id < SIZE * 2; id++) {
+            changes.put(id, product(id, 1));
+        }
+
+        ProductSnapshot snapshot = mSnapshot.apply(changes);
+
+        assertEquals(products(SIZE * 2).size(), snapshot.size());
+        assertEquals(20, snapshot.chunkCount());
+        assertTrue(snapshot.sharesChunk(mSnapshot, 0));
+        assertFalse(snapshot.sharesChunk(mSnapshot, 9));
+    }
+
+    @Test
+    public void appliesToEmptySnapshot() {
+        SortedMap<Integer, ProductEntity> changes = new TreeMap<>();
+        changes.put(1, product(1, 1));
+        changes.put(2, null);
+
+        ProductSnapshot snapshot = ProductSnapshot.EMPTY.apply(changes);
+
+        assertEquals(1, snapshot.size());
+        assertSame(changes.get(1), snapshot.get(0));
+    }
+
+    private static List<ProductEntity> products(int count) {
+        List<ProductEntity> products = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            products.add(product(id, 100));
+        }
+        return products;
+    }
+
+    private static ProductEntity product(int id, int price) {
+        return new ProductEntity(id, "Product " + id, "Description " + id, price);
+    }
+}
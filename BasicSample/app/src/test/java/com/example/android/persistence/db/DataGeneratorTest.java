@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.android.persistence.db.entity.CommentEntity;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+/**
+ * Unit tests for the data streamed by {@link DataGenerator}.
+ */
+public class DataGeneratorTest {
+
+    @Test
+    public void streamsMoreCommentsThanAnIntCanCount() {
+        // 2^31 comments, which overflows as an int product
+        Iterator<CommentEntity> comments =
+                DataGenerator.streamComments(1 << 30, 2, 0);
+
+        assertTrue(comments.hasNext());
+        assertEquals(1, comments.next().getProductId());
+        assertEquals(1, comments.next().getProductId());
+        assertEquals(2, comments.next().getProductId());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017, The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.benchmark;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.android.persistence.db.entity.ProductEntity;
+import com.example.android.persistence.ui.ProductDiffCallback;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the diff the product adapters run on their diffing thread when the database
+ * emits a new list, with the app's {@link ProductDiffCallback}.
+ *
+ * <p>Each new list changes the price of 1% of the products, and removes and inserts 0.1% of them,
+ * at least one.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductDiffBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final ProductDiffCallback<ProductEntity> mCallback = new ProductDiffCallback<>();
+
+    private List<ProductEntity> mOldList;
+
+    private List<ProductEntity> mNewList;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        mOldList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            mOldList.add(new ProductEntity(i, "Product " + i,
+                    "This is the description of product " + i, 100 + i % 500));
+        }
+        mNewList = new ArrayList<>(mOldList);
+        int updates = size / 100;
+        int moves = Math.max(1, size / 1000);
+        for (int i = 0; i < updates; i++) {
+            int position = random.nextInt(size);
+            ProductEntity old = mNewList.get(position);
+            mNewList.set(position, new ProductEntity(old.getId(), old.getName(),
+                    old.getDescription(), old.getPrice() + 1));
+        }
+        for (int i = 0; i < moves; i++) {
+            mNewList.remove(random.nextInt(mNewList.size()));
+            mNewList.add(random.nextInt(mNewList.size()),
+                    new ProductEntity(size + i, "New product " + i, "New description", 1));
+        }
+    }
+
+    /**
+     * The diff of the adapters, which detect moves like {@code AsyncListDiffer} does.
+     */
+    @Benchmark
+    public DiffUtil.DiffResult diff() {
+        final List<ProductEntity> oldList = mOldList;
+        final List<ProductEntity> newList = mNewList;
+        return DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return mCallback.areItemsTheSame(oldList.get(oldItemPosition),
+                        newList.get(newItemPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return mCallback.areContentsTheSame(oldList.get(oldItemPosition),
+                        newList.get(newItemPosition));
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+#
+#  Copyright 2018 The Android Open Source Project
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#      http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License.
+#
+
+"""Builds the prepackaged database that AppDatabase copies from the assets on first launch.
+
+The schema is read from the latest schema Room exported to app/schemas, so the asset is always at
+the current version of AppDatabase and Room has no migration to run after copying it. The data
+mirrors DataGenerator, and the full text index is built here so the app doesn't have to index
+anything on first launch.
+
+Usage, from the BasicSample directory:
+    python3 scripts/prepackage_database.py [app/src/main/assets/databases/basic-sample.db]
+"""
+
+import glob
+import json
+import os
+import random
+import sqlite3
+import sys
+import time
+
+SCHEMAS = os.path.join("app", "schemas", "com.example.android.persistence.db.AppDatabase")
+
+FIRST = ["Special edition", "New", "Cheap", "Quality", "Used"]
+SECOND = ["Three-headed Monkey", "Rubber Chicken", "Pint of Grog", "Monocle"]
+DESCRIPTION = ["is finally here", "is recommended by Stan S. Stanman",
+               "is the best sold product on Mêlée Island", "is \U0001F4AF",
+               "is ❤️", "is fine"]
+COMMENTS = ["Comment 1", "Comment 2", "Comment 3", "Comment 4", "Comment 5", "Comment 6"]
+
+
+def load_latest_schema():
+    """Returns the database section of the schema with the highest version."""
+    paths = glob.glob(os.path.join(SCHEMAS, "*.json"))
+    if not paths:
+        sys.exit("No schema found in %s, build the app first" % SCHEMAS)
+    path = max(paths, key=lambda p: int(os.path.splitext(os.path.basename(p))[0]))
+    with open(path, encoding="utf-8") as schema:
+        return json.load(schema)["database"]
+
+
+def create_statements(schema):
+    """Returns the statements creating the tables and indexes, and those creating the full text
+    sync triggers, which only have to exist once the index is built."""
+    tables = []
+    triggers = []
+    for entity in schema["entities"]:
+        table = entity["tableName"]
+        tables.append(entity["createSql"].replace("${TABLE_NAME}", table))
+        for index in entity.get("indices", []):
+            tables.append(index["createSql"].replace("${TABLE_NAME}", table))
+        triggers.extend(entity.get("contentSyncTriggers", []))
+    return tables + schema.get("setupQueries", []), triggers
+
+
+def generate_products(rnd):
+    for i, first in enumerate(FIRST):
+        for j, second in enumerate(SECOND):
+            name = first + " " + second
+            yield (len(FIRST) * i + j + 1, name, name + " " + DESCRIPTION[j], rnd.randrange(240))
+
+
+def generate_comments(rnd, products, now_millis):
+    day = 24 * 60 * 60 * 1000
+    hour = 60 * 60 * 1000
+    for product_id, name, _, _ in products:
+        count = rnd.randrange(5) + 1
+        for i in range(count):
+            yield (product_id, COMMENTS[i] + " for " + name, now_millis - day * (count - i) + hour * i)
+
+
+def main():
+    path = sys.argv[1] if len(sys.argv) > 1 else os.path.join(
+        "app", "src", "main", "assets", "databases", "basic-sample.db")
+    os.makedirs(os.path.dirname(path), exist_ok=True)
+    if os.path.exists(path):
+        os.remove(path)
+
+    rnd = random.Random(42)
+    products = list(generate_products(rnd))
+    comments = list(generate_comments(rnd, products, int(time.time() * 1000)))
+
+    schema = load_latest_schema()
+    tables, triggers = create_statements(schema)
+
+    db = sqlite3.connect(path)
+    with db:
+        for statement in tables:
+            db.execute(statement)
+        db.executemany("INSERT INTO products (`id`, `name`, `description`, `price`) "
+                       "VALUES (?, ?, ?, ?)", products)
+        db.executemany("INSERT INTO comments (`productId`, `text`, `postedAt`) VALUES (?, ?, ?)",
+                       comments)
+        db.execute("INSERT INTO productsFts(productsFts) VALUES('rebuild')")
+        db.execute("INSERT INTO productsFts(productsFts) VALUES('optimize')")
+        for statement in triggers:
+            db.execute(statement)
+    db.execute("PRAGMA user_version = %d" % schema["version"])
+    db.execute("VACUUM")
+    db.close()
+    print("Wrote %d products and %d comments to %s at version %d"
+          % (len(products), len(comments), path, schema["version"]))
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.os.Build;
+import androidx.paging.PagingSource;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.filters.SmallTest;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import com.example.android.contentprovidersample.provider.SampleContentProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+public class CheesePagingSourceTest {
+
+    private ContentResolver mContentResolver;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        SampleDatabase.switchToInMemory(context);
+        mContentResolver = context.getContentResolver();
+        mExecutor = Executors.newSingleThreadExecutor();
+        // Written to the database directly, so that no change notification invalidates the
+        // paging sources of the tests
+        final String[] names = {"Peynir", "Queso", "Daigo", "Brie", "Feta"};
+        final Cheese[] cheeses = new Cheese[names.length];
+        for (int i = 0; i < names.length; i++) {
+            cheeses[i] = new Cheese();
+            cheeses[i].name = names[i];
+        }
+        SampleDatabase.getInstance(context).cheese().insertAll(cheeses);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void appendsUntilTheEnd() throws Exception {
+        final CheesePagingSource source = new CheesePagingSource(mContentResolver, mExecutor);
+        PagingSource.LoadResult.Page<Long, Cheese> page = load(source,
+                new PagingSource.LoadParams.Refresh<>(null, 2, false));
+        final List<String> names = names(page);
+        assertThat(page.getPrevKey(), is(nullValue()));
+        while (page.getNextKey() != null) {
+            page = load(source,
+                    new PagingSource.LoadParams.Append<>(page.getNextKey(), 2, false));
+            names.addAll(names(page));
+        }
+        assertThat(names, contains("Peynir", "Queso", "Daigo", "Brie", "Feta"));
+    }
+
+    @Test
+    public void prependsFromTheMiddle() throws Exception {
+        final CheesePagingSource source = new CheesePagingSource(mContentResolver, mExecutor);
+        final PagingSource.LoadResult.Page<Long, Cheese> refresh = load(source,
+                new PagingSource.LoadParams.Refresh<>(3L, 2, false));
+        assertThat(names(refresh), contains("Brie", "Feta"));
+        final PagingSource.LoadResult.Page<Long, Cheese> before = load(source,
+                new PagingSource.LoadParams.Prepend<>(refresh.getPrevKey(), 2, false));
+        assertThat(names(before), contains("Queso", "Daigo"));
+    }
+
+    @Test
+    public void invalidatedByChanges() {
+        final CheesePagingSource source = new CheesePagingSource(mContentResolver, mExecutor);
+        final ContentValues values = new ContentValues();
+        values.put(Cheese.COLUMN_NAME, "Gouda");
+        mContentResolver.insert(SampleContentProvider.URI_CHEESE, values);
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!source.getInvalid() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+        assertThat(source.getInvalid(), is(true));
+    }
+
+    private static PagingSource.LoadResult.Page<Long, Cheese> load(CheesePagingSource source,
+            PagingSource.LoadParams<Long> params) throws Exception {
+        final PagingSource.LoadResult<Long, Cheese> result = source.loadFuture(params).get();
+        assertThat(result, instanceOf(PagingSource.LoadResult.Page.class));
+        return (PagingSource.LoadResult.Page<Long, Cheese>) result;
+    }
+
+    private static List<String> names(PagingSource.LoadResult.Page<Long, Cheese> page) {
+        final List<String> names = new ArrayList<>();
+        for (Cheese cheese : page.getData()) {
+            names.add(cheese.name);
+        }
+        return names;
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import com.example.android.contentprovidersample.provider.SampleContentProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Calls the provider from many threads at once, like the binder threads of several clients.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class SampleContentProviderStressTest {
+
+    private static final int THREADS = 16;
+
+    private static final int ITERATIONS = 100;
+
+    private ContentResolver mContentResolver;
+
+    @Before
+    public void setUp() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        SampleDatabase.switchToInMemory(context);
+        mContentResolver = context.getContentResolver();
+    }
+
+    @Test
+    public void cheese_concurrentQueriesAndWrites() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                results.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        start.await();
+                        return hammer(thread);
+                    }
+                }));
+            }
+            start.countDown();
+            int inserted = 0;
+            for (Future<Integer> result : results) {
+                inserted += result.get(2, TimeUnit.MINUTES);
+            }
+            final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                    new String[]{Cheese.COLUMN_ID}, null, null, null);
+            assertThat(cursor, notNullValue());
+            assertThat(cursor.getCount(), is(inserted));
+            cursor.close();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Inserts, reads back and updates cheeses, and returns how many were inserted.
+     */
+    private int hammer(int thread) {
+        for (int i = 0; i < ITERATIONS; i++) {
+            final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                    cheeseWithName("Cheese " + thread + "-" + i));
+            assertThat(itemUri, notNullValue());
+            final Cursor cursor = mContentResolver.query(itemUri,
+                    new String[]{Cheese.COLUMN_NAME}, null, null, null);
+            assertThat(cursor, notNullValue());
+            assertThat(cursor.getCount(), is(1));
+            cursor.close();
+            assertThat(mContentResolver.update(itemUri, cheeseWithName("Updated"), null, null),
+                    is(1));
+        }
+        return ITERATIONS;
+    }
+
+    private ContentValues cheeseWithName(String name) {
+        final ContentValues values = new ContentValues();
+        values.put(Cheese.COLUMN_NAME, name);
+        return values;
+    }
+
+}
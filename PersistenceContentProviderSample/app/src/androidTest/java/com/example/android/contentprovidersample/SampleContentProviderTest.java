@@ -16,6 +16,9 @@
 
 package com.example.android.contentprovidersample;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
@@ -26,11 +29,17 @@ import android.content.ContentResolver;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.RemoteException;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SdkSuppress;
 import androidx.test.filters.SmallTest;
 import com.example.android.contentprovidersample.data.Cheese;
 import com.example.android.contentprovidersample.data.SampleDatabase;
@@ -40,7 +49,19 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @RunWith(AndroidJUnit4.class)
@@ -152,6 +173,318 @@ public class SampleContentProviderTest {
         cursor.close();
     }
 
+    @Test
+    public void cheese_queryProjectionSelectionAndSortOrder() {
+        insertCheeses("Peynir", "Queso", "Daigo", "Brie");
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, Cheese.COLUMN_NAME + " != ?",
+                new String[]{"Queso"}, Cheese.COLUMN_NAME + " DESC");
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getColumnCount(), is(1));
+        assertThat(names(cursor), contains("Peynir", "Daigo", "Brie"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_queryItemWithSelection() {
+        final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                cheeseWithName("Daigo"));
+        assertThat(itemUri, notNullValue());
+        final Cursor matching = mContentResolver.query(itemUri, null,
+                Cheese.COLUMN_NAME + " = ?", new String[]{"Daigo"}, null);
+        assertThat(matching, notNullValue());
+        assertThat(matching.getCount(), is(1));
+        matching.close();
+        final Cursor other = mContentResolver.query(itemUri, null,
+                Cheese.COLUMN_NAME + " = ?", new String[]{"Queso"}, null);
+        assertThat(other, notNullValue());
+        assertThat(other.getCount(), is(0));
+        other.close();
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    public void cheese_queryLimitAndOffset() {
+        insertCheeses("Peynir", "Queso", "Daigo", "Brie");
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, Cheese.COLUMN_NAME);
+        queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, 2);
+        queryArgs.putInt(ContentResolver.QUERY_ARG_OFFSET, 1);
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, queryArgs, null);
+        assertThat(cursor, notNullValue());
+        assertThat(names(cursor), contains("Daigo", "Peynir"));
+        assertThat(Arrays.asList(cursor.getExtras().getStringArray(
+                ContentResolver.EXTRA_HONORED_ARGS)), containsInAnyOrder(
+                ContentResolver.QUERY_ARG_SQL_SORT_ORDER,
+                ContentResolver.QUERY_ARG_LIMIT,
+                ContentResolver.QUERY_ARG_OFFSET));
+        cursor.close();
+    }
+
+    @Test
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.O)
+    public void cheese_queryKeysetPages() {
+        insertCheeses("Peynir", "Queso", "Daigo", "Brie", "Feta");
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putLong(SampleContentProvider.QUERY_ARG_AFTER_ID, 0);
+        queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, 2);
+        final List<String> names = new ArrayList<>();
+        int pages = 0;
+        while (true) {
+            final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                    new String[]{Cheese.COLUMN_NAME}, queryArgs, null);
+            assertThat(cursor, notNullValue());
+            assertThat(Arrays.asList(cursor.getExtras().getStringArray(
+                    ContentResolver.EXTRA_HONORED_ARGS)), hasItem(
+                    SampleContentProvider.QUERY_ARG_AFTER_ID));
+            names.addAll(names(cursor));
+            pages++;
+            final Bundle extras = cursor.getExtras();
+            cursor.close();
+            if (!extras.containsKey(SampleContentProvider.EXTRA_NEXT_ID)) {
+                break;
+            }
+            queryArgs.putLong(SampleContentProvider.QUERY_ARG_AFTER_ID,
+                    extras.getLong(SampleContentProvider.EXTRA_NEXT_ID));
+        }
+        assertThat(names, contains("Peynir", "Queso", "Daigo", "Brie", "Feta"));
+        assertThat(pages, is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryUnknownColumn() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{"sqlite_version()"}, null, null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_querySelectionEscapingItsParentheses() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE, null,
+                "1) UNION SELECT name, sql FROM sqlite_master --", null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_querySelectionWithSubquery() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE, null,
+                Cheese.COLUMN_ID + " IN (SELECT rowid FROM sqlite_master)", null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryUnknownColumnInSelection() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE, null, "password = ?",
+                new String[]{"x"}, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cheese_queryInvalidSortOrder() {
+        mContentResolver.query(SampleContentProvider.URI_CHEESE, null, null, null,
+                Cheese.COLUMN_NAME + "; DROP TABLE " + Cheese.TABLE_NAME);
+    }
+
+    @Test
+    public void cheese_applyBatchNotifiesOnce() throws Exception {
+        final CountingObserver observer = CountingObserver.register(mContentResolver);
+        try {
+            final ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                operations.add(ContentProviderOperation
+                        .newInsert(SampleContentProvider.URI_CHEESE)
+                        .withValue(Cheese.COLUMN_NAME, "Cheese " + i)
+                        .build());
+            }
+            mContentResolver.applyBatch(SampleContentProvider.AUTHORITY, operations);
+            assertThat(observer.awaitChanges(), is(1));
+        } finally {
+            observer.unregister();
+        }
+    }
+
+    @Test
+    public void cheese_bulkInsertNotifies() throws Exception {
+        final CountingObserver observer = CountingObserver.register(mContentResolver);
+        try {
+            insertCheeses("Peynir", "Queso", "Daigo");
+            assertThat(observer.awaitChanges(), is(1));
+        } finally {
+            observer.unregister();
+        }
+    }
+
+    @Test
+    public void cheese_export() throws IOException {
+        insertCheeses("Peynir", "Queso", "Daigo");
+        final InputStream in = mContentResolver.openInputStream(SampleContentProvider.URI_CHEESE);
+        assertThat(in, notNullValue());
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        final List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        reader.close();
+        assertThat(lines, contains(
+                "{\"_id\":1,\"name\":\"Peynir\"}",
+                "{\"_id\":2,\"name\":\"Queso\"}",
+                "{\"_id\":3,\"name\":\"Daigo\"}"));
+    }
+
+    @Test
+    public void cheese_import() throws Exception {
+        insertCheeses("Peynir");
+        final CountingObserver observer = CountingObserver.register(mContentResolver);
+        try {
+            final OutputStream out = mContentResolver.openOutputStream(
+                    SampleContentProvider.URI_CHEESE);
+            assertThat(out, notNullValue());
+            final Writer writer = new OutputStreamWriter(out, "UTF-8");
+            // Replaces the existing cheese, then adds more than a chunk of new ones
+            writer.write("{\"_id\":1,\"name\":\"Queso\"}\n");
+            for (int i = 0; i < 1000; i++) {
+                writer.write("{\"name\":\"Cheese " + i + "\"}\n");
+            }
+            writer.close();
+            assertThat(observer.awaitChanges(), is(1));
+        } finally {
+            observer.unregister();
+        }
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, null, null, Cheese.COLUMN_ID);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.getCount(), is(1001));
+        assertThat(cursor.moveToFirst(), is(true));
+        assertThat(cursor.getString(0), is("Queso"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_callUpsert() {
+        insertCheeses("Peynir");
+        final Bundle extras = new Bundle();
+        extras.putLongArray(SampleContentProvider.EXTRA_IDS, new long[]{1, 0});
+        extras.putStringArray(SampleContentProvider.EXTRA_NAMES,
+                new String[]{"Queso", "Daigo"});
+        final Bundle result = mContentResolver.call(SampleContentProvider.URI_CHEESE,
+                SampleContentProvider.METHOD_UPSERT, null, extras);
+        assertThat(result, notNullValue());
+        assertThat(result.getInt(SampleContentProvider.EXTRA_COUNT), is(2));
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE,
+                new String[]{Cheese.COLUMN_NAME}, null, null, Cheese.COLUMN_ID);
+        assertThat(cursor, notNullValue());
+        assertThat(names(cursor), contains("Queso", "Daigo"));
+        cursor.close();
+    }
+
+    @Test
+    public void cheese_callDeleteRangeAndCount() {
+        insertCheeses("Peynir", "Queso", "Daigo", "Brie");
+        final Bundle extras = new Bundle();
+        extras.putLong(SampleContentProvider.EXTRA_FROM_ID, 2);
+        extras.putLong(SampleContentProvider.EXTRA_TO_ID, 4);
+        final Bundle deleted = mContentResolver.call(SampleContentProvider.URI_CHEESE,
+                SampleContentProvider.METHOD_DELETE_RANGE, null, extras);
+        assertThat(deleted, notNullValue());
+        assertThat(deleted.getInt(SampleContentProvider.EXTRA_COUNT), is(2));
+        final Bundle count = mContentResolver.call(SampleContentProvider.URI_CHEESE,
+                SampleContentProvider.METHOD_COUNT, null, null);
+        assertThat(count, notNullValue());
+        assertThat(count.getInt(SampleContentProvider.EXTRA_COUNT), is(2));
+    }
+
+    @Test
+    public void cheese_queryCache() {
+        final Uri itemUri = mContentResolver.insert(SampleContentProvider.URI_CHEESE,
+                cheeseWithName("Daigo"));
+        assertThat(itemUri, notNullValue());
+        final long hits = cacheStats().getLong(SampleContentProvider.EXTRA_CACHE_HITS);
+        // The cache starts following the new database with the first query, after the insert, so
+        // the tracker can't report the insert between the two queries
+        assertThat(queryName(itemUri), is("Daigo"));
+        assertThat(queryName(itemUri), is("Daigo"));
+        assertThat(cacheStats().getLong(SampleContentProvider.EXTRA_CACHE_HITS), is(hits + 1));
+        // The update removes the cached query
+        mContentResolver.update(itemUri, cheeseWithName("Queso"), null, null);
+        assertThat(queryName(itemUri), is("Queso"));
+    }
+
+    private String queryName(Uri uri) {
+        final Cursor cursor = mContentResolver.query(uri, new String[]{Cheese.COLUMN_NAME},
+                null, null, null);
+        assertThat(cursor, notNullValue());
+        assertThat(cursor.moveToFirst(), is(true));
+        final String name = cursor.getString(0);
+        cursor.close();
+        return name;
+    }
+
+    private Bundle cacheStats() {
+        final Bundle stats = mContentResolver.call(SampleContentProvider.URI_CHEESE,
+                SampleContentProvider.METHOD_CACHE_STATS, null, null);
+        assertThat(stats, notNullValue());
+        return stats;
+    }
+
+    private void insertCheeses(String... names) {
+        final ContentValues[] valuesArray = new ContentValues[names.length];
+        for (int i = 0; i < names.length; i++) {
+            valuesArray[i] = cheeseWithName(names[i]);
+        }
+        mContentResolver.bulkInsert(SampleContentProvider.URI_CHEESE, valuesArray);
+    }
+
+    private static List<String> names(Cursor cursor) {
+        final List<String> names = new ArrayList<>();
+        final int index = cursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME);
+        while (cursor.moveToNext()) {
+            names.add(cursor.getString(index));
+        }
+        return names;
+    }
+
+    /**
+     * Counts the change notifications of the Cheese table.
+     */
+    private static class CountingObserver extends ContentObserver {
+
+        private final ContentResolver mResolver;
+        private final HandlerThread mThread;
+        private final AtomicInteger mChanges = new AtomicInteger();
+        private final CountDownLatch mFirstChange = new CountDownLatch(1);
+
+        private CountingObserver(ContentResolver resolver, HandlerThread thread) {
+            super(new Handler(thread.getLooper()));
+            mResolver = resolver;
+            mThread = thread;
+        }
+
+        static CountingObserver register(ContentResolver resolver) {
+            final HandlerThread thread = new HandlerThread("CountingObserver");
+            thread.start();
+            final CountingObserver observer = new CountingObserver(resolver, thread);
+            resolver.registerContentObserver(SampleContentProvider.URI_CHEESE, true, observer);
+            return observer;
+        }
+
+        @Override
+        public void onChange(boolean selfChange) {
+            mChanges.incrementAndGet();
+            mFirstChange.countDown();
+        }
+
+        /** Waits for a change, then a while for any other, and returns how many there were. */
+        int awaitChanges() throws InterruptedException {
+            assertThat(mFirstChange.await(5, TimeUnit.SECONDS), is(true));
+            Thread.sleep(500);
+            return mChanges.get();
+        }
+
+        void unregister() {
+            mResolver.unregisterContentObserver(this);
+            mThread.quit();
+        }
+
+    }
+
     private ContentValues cheeseWithName(String name) {
         final ContentValues values = new ContentValues();
         values.put(Cheese.COLUMN_NAME, name);
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Build;
+import android.os.Bundle;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.concurrent.futures.CallbackToFutureAdapter;
+import androidx.paging.ListenableFuturePagingSource;
+import androidx.paging.PagingState;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.provider.SampleContentProvider;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import kotlin.Unit;
+
+
+/**
+ * Pages through the cheeses of {@link SampleContentProvider#URI_CHEESE} in the order of their IDs.
+ *
+ * <p>Each page is a separate query for the cheeses after (or before) the last ID loaded, using
+ * {@link SampleContentProvider#QUERY_ARG_AFTER_ID}. The provider only reads and sends that page,
+ * so scrolling through millions of cheeses never waits for a large cursor window to fill.</p>
+ */
+@RequiresApi(Build.VERSION_CODES.O)
+public class CheesePagingSource extends ListenableFuturePagingSource<Long, Cheese> {
+
+    private final ContentResolver mContentResolver;
+
+    private final Executor mExecutor;
+
+    public CheesePagingSource(@NonNull ContentResolver contentResolver,
+            @NonNull Executor executor) {
+        mContentResolver = contentResolver;
+        mExecutor = executor;
+
+        // Stop being valid when the cheeses change
+        final ContentObserver observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate();
+            }
+        };
+        contentResolver.registerContentObserver(SampleContentProvider.URI_CHEESE, true,
+                observer);
+        registerInvalidatedCallback(() -> {
+            contentResolver.unregisterContentObserver(observer);
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public ListenableFuture<LoadResult<Long, Cheese>> loadFuture(
+            @NonNull LoadParams<Long> params) {
+        return CallbackToFutureAdapter.getFuture(completer -> {
+            mExecutor.execute(() -> {
+                try {
+                    completer.set(load(params));
+                } catch (Exception e) {
+                    completer.set(new LoadResult.Error<>(e));
+                }
+            });
+            return "CheesePagingSource.load";
+        });
+    }
+
+    private LoadResult<Long, Cheese> load(LoadParams<Long> params) {
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+        final Long key = params.getKey();
+        final boolean prepend = params instanceof LoadParams.Prepend;
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putLong(prepend ? SampleContentProvider.QUERY_ARG_BEFORE_ID
+                : SampleContentProvider.QUERY_ARG_AFTER_ID, key == null ? 0 : key);
+        queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, params.getLoadSize());
+        final Cursor cursor = mContentResolver.query(SampleContentProvider.URI_CHEESE, null,
+                queryArgs, null);
+        if (cursor == null) {
+            return new LoadResult.Error<>(new IllegalStateException("No cursor"));
+        }
+        final List<Cheese> cheeses = new ArrayList<>(cursor.getCount());
+        final Long nextId;
+        try {
+            final int id = cursor.getColumnIndexOrThrow(Cheese.COLUMN_ID);
+            final int name = cursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME);
+            while (cursor.moveToNext()) {
+                final Cheese cheese = new Cheese();
+                cheese.id = cursor.getLong(id);
+                cheese.name = cursor.getString(name);
+                cheeses.add(cheese);
+            }
+            final Bundle extras = cursor.getExtras();
+            nextId = extras.containsKey(SampleContentProvider.EXTRA_NEXT_ID)
+                    ? extras.getLong(SampleContentProvider.EXTRA_NEXT_ID) : null;
+        } finally {
+            cursor.close();
+        }
+        if (prepend) {
+            Collections.reverse(cheeses);
+            return new LoadResult.Page<>(cheeses, nextId, key);
+        }
+        // Nothing is before the first page
+        final Long prevKey = key == null || cheeses.isEmpty() ? null : cheeses.get(0).id;
+        return new LoadResult.Page<>(cheeses, prevKey, nextId);
+    }
+
+    /**
+     * Refresh from the cheese closest to where the user is in the list. Keys are exclusive, so
+     * the key is moved just before that cheese to include it in the refreshed page.
+     */
+    @Nullable
+    @Override
+    public Long getRefreshKey(@NonNull PagingState<Long, Cheese> state) {
+        final Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        final Cheese cheese = state.closestItemToPosition(anchorPosition);
+        return cheese == null ? null : cheese.id - 1;
+    }
+
+}
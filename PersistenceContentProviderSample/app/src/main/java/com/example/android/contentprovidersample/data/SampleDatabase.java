@@ -20,7 +20,9 @@ import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import android.content.Context;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import java.util.concurrent.Callable;
 
 /**
  * The Room database.
@@ -35,22 +37,43 @@ public abstract class SampleDatabase extends RoomDatabase {
     public abstract CheeseDao cheese();
 
     /** The only instance */
-    private static SampleDatabase sInstance;
+    private static volatile SampleDatabase sInstance;
 
     /**
      * Gets the singleton instance of SampleDatabase.
      *
+     * <p>Once created, the instance is returned without taking any lock, so the binder threads
+     * of the content provider don't wait for each other here.</p>
+     *
      * @param context The context.
      * @return The singleton instance of SampleDatabase.
      */
-    public static synchronized SampleDatabase getInstance(Context context) {
-        if (sInstance == null) {
-            sInstance = Room
-                    .databaseBuilder(context.getApplicationContext(), SampleDatabase.class, "ex")
-                    .build();
-            sInstance.populateInitialData();
+    public static SampleDatabase getInstance(Context context) {
+        return getInstance(context, null);
+    }
+
+    /**
+     * Gets the singleton instance of SampleDatabase.
+     *
+     * @param context  The context.
+     * @param onSeeded Run in the background once the dummy data is inserted, if this call creates
+     *                 the database and it was empty.
+     * @return The singleton instance of SampleDatabase.
+     */
+    public static SampleDatabase getInstance(Context context, @Nullable Runnable onSeeded) {
+        SampleDatabase instance = sInstance;
+        if (instance == null) {
+            synchronized (SampleDatabase.class) {
+                instance = sInstance;
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                            SampleDatabase.class, "ex").build();
+                    instance.populateInitialDataAsync(onSeeded);
+                    sInstance = instance;
+                }
+            }
         }
-        return sInstance;
+        return instance;
     }
 
     /**
@@ -64,22 +87,43 @@ public abstract class SampleDatabase extends RoomDatabase {
                 SampleDatabase.class).build();
     }
 
+    /**
+     * Inserts the dummy data into the database if it is currently empty. This runs in the
+     * background, so the first query doesn't wait for it, and {@code onSeeded} lets the caller
+     * tell its observers when the data is there.
+     */
+    private void populateInitialDataAsync(@Nullable final Runnable onSeeded) {
+        getTransactionExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (populateInitialData() && onSeeded != null) {
+                    onSeeded.run();
+                }
+            }
+        });
+    }
+
     /**
      * Inserts the dummy data into the database if it is currently empty.
+     *
+     * @return Whether the data was inserted.
      */
-    private void populateInitialData() {
-        if (cheese().count() == 0) {
-            runInTransaction(new Runnable() {
-                @Override
-                public void run() {
-                    Cheese cheese = new Cheese();
-                    for (int i = 0; i < Cheese.CHEESES.length; i++) {
-                        cheese.name = Cheese.CHEESES[i];
-                        cheese().insert(cheese);
-                    }
+    private boolean populateInitialData() {
+        return runInTransaction(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                if (cheese().count() != 0) {
+                    return false;
                 }
-            });
-        }
+                final Cheese[] cheeses = new Cheese[Cheese.CHEESES.length];
+                for (int i = 0; i < Cheese.CHEESES.length; i++) {
+                    cheeses[i] = new Cheese();
+                    cheeses[i].name = Cheese.CHEESES[i];
+                }
+                cheese().insertAll(cheeses);
+                return true;
+            }
+        });
     }
 
 }
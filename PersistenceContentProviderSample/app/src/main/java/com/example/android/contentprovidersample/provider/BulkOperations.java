@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+
+/**
+ * The bulk operations of {@link SampleContentProvider#call(String, String, android.os.Bundle)}.
+ *
+ * <p>Each operation runs in a single transaction with a statement compiled once, so its cost
+ * grows with the number of rows but not with the number of calls.</p>
+ */
+class BulkOperations {
+
+    /** Inserts a cheese, or replaces the one with the same ID. */
+    static final String UPSERT = "INSERT OR REPLACE INTO " + Cheese.TABLE_NAME
+            + " (" + Cheese.COLUMN_ID + ", " + Cheese.COLUMN_NAME + ") VALUES (?, ?)";
+
+    private static final String DELETE_RANGE = "DELETE FROM " + Cheese.TABLE_NAME
+            + " WHERE " + Cheese.COLUMN_ID + " >= ? AND " + Cheese.COLUMN_ID + " < ?";
+
+    private BulkOperations() {
+    }
+
+    /**
+     * Inserts or replaces cheeses.
+     *
+     * @param database The database.
+     * @param ids      The IDs of the cheeses, in the same order as {@code names}. An ID that isn't
+     *                 positive, or no IDs at all, inserts the cheese with a new ID.
+     * @param names    The names of the cheeses.
+     * @return The number of cheeses written.
+     */
+    static int upsert(@NonNull SampleDatabase database, @Nullable final long[] ids,
+            @NonNull final String[] names) {
+        if (ids != null && ids.length != names.length) {
+            throw new IllegalArgumentException(
+                    "Expected " + names.length + " IDs, got " + ids.length);
+        }
+        final SupportSQLiteStatement statement = database.compileStatement(UPSERT);
+        try {
+            database.runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < names.length; i++) {
+                        statement.clearBindings();
+                        if (ids != null && ids[i] > 0) {
+                            statement.bindLong(1, ids[i]);
+                        }
+                        if (names[i] != null) {
+                            statement.bindString(2, names[i]);
+                        }
+                        statement.executeInsert();
+                    }
+                }
+            });
+        } finally {
+            close(statement);
+        }
+        return names.length;
+    }
+
+    /**
+     * Deletes the cheeses with an ID from {@code fromId} included to {@code toId} excluded.
+     *
+     * @return The number of cheeses deleted.
+     */
+    static int deleteRange(@NonNull SampleDatabase database, final long fromId, final long toId) {
+        final SupportSQLiteStatement statement = database.compileStatement(DELETE_RANGE);
+        try {
+            return database.runInTransaction(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    statement.bindLong(1, fromId);
+                    statement.bindLong(2, toId);
+                    return statement.executeUpdateDelete();
+                }
+            });
+        } finally {
+            close(statement);
+        }
+    }
+
+    private static void close(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
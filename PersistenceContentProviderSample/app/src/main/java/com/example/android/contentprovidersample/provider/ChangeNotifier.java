@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Sends the change notifications of a content provider.
+ *
+ * <p>Between {@link #begin()} and {@link #commit(ContentResolver)}, the changes made on the
+ * calling thread are only collected. They are sent when the batch is committed, once for each kind
+ * of change, so the observers re-query once per batch instead of once per row.</p>
+ *
+ * <p>The cached queries of the changed URIs are removed right before their observers are
+ * notified.</p>
+ */
+class ChangeNotifier {
+
+    /** Above this many URIs in a notification, the whole table is reported as changed instead. */
+    private static final int MAX_URIS = 100;
+
+    /** The URI of the whole table, whose observers also get the changes of its rows. */
+    private final Uri mTableUri;
+
+    private final QueryCache mCache;
+
+    /** The changed URIs of the batch running on each thread, by {@code NOTIFY_*} flag. */
+    private final ThreadLocal<Map<Integer, Set<Uri>>> mPending = new ThreadLocal<>();
+
+    ChangeNotifier(@NonNull Uri tableUri, @NonNull QueryCache cache) {
+        mTableUri = tableUri;
+        mCache = cache;
+    }
+
+    /**
+     * Starts collecting the changes made on this thread.
+     *
+     * @return {@code false} if a batch was already running, and this one is part of it.
+     */
+    boolean begin() {
+        if (mPending.get() != null) {
+            return false;
+        }
+        mPending.set(new LinkedHashMap<Integer, Set<Uri>>());
+        return true;
+    }
+
+    /**
+     * Sends the changes collected since {@link #begin()}. Call it after the batch is committed.
+     */
+    void commit(@NonNull ContentResolver resolver) {
+        final Map<Integer, Set<Uri>> pending = mPending.get();
+        mPending.remove();
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            // Without the flags, there is nothing to tell apart
+            mCache.invalidateAll();
+            resolver.notifyChange(mTableUri, null);
+            return;
+        }
+        for (Map.Entry<Integer, Set<Uri>> entry : pending.entrySet()) {
+            Set<Uri> uris = entry.getValue();
+            if (uris.size() > MAX_URIS) {
+                uris = new LinkedHashSet<>();
+                uris.add(mTableUri);
+            }
+            for (Uri uri : uris) {
+                mCache.invalidate(uri, mTableUri);
+            }
+            resolver.notifyChange(uris, null, entry.getKey());
+        }
+    }
+
+    /**
+     * Drops the changes collected since {@link #begin()}, when the batch is rolled back.
+     */
+    void discard() {
+        mPending.remove();
+    }
+
+    /**
+     * Reports a change, now or when the batch running on this thread is committed.
+     *
+     * @param uri   The changed URI.
+     * @param flags One of {@link ContentResolver#NOTIFY_INSERT},
+     *              {@link ContentResolver#NOTIFY_UPDATE} or {@link ContentResolver#NOTIFY_DELETE}.
+     */
+    void notifyChange(@NonNull ContentResolver resolver, @NonNull Uri uri, int flags) {
+        final Map<Integer, Set<Uri>> pending = mPending.get();
+        if (pending != null) {
+            Set<Uri> uris = pending.get(flags);
+            if (uris == null) {
+                uris = new LinkedHashSet<>();
+                pending.put(flags, uris);
+            }
+            uris.add(uri);
+            return;
+        }
+        mCache.invalidate(uri, mTableUri);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            resolver.notifyChange(uri, null, flags);
+        } else {
+            resolver.notifyChange(uri, null);
+        }
+    }
+
+}
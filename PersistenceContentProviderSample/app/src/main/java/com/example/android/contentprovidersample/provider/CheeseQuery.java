@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.database.sqlite.SQLiteException;
+import android.text.TextUtils;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteQueryBuilder;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Builds the SQL query of the Cheese table from the arguments of a {@code query} call.
+ *
+ * <p>The arguments come from other apps, so they are checked before being put in the SQL: the
+ * projection and the sort order may only name the columns of the table, and the selection has to
+ * be a single expression that can't close the parentheses it is wrapped in, nor read another table
+ * through a sub-query.</p>
+ */
+class CheeseQuery {
+
+    /** The columns that can be queried. */
+    private static final List<String> COLUMNS = Arrays.asList(Cheese.COLUMN_ID, Cheese.COLUMN_NAME);
+
+    /** One term of a sort order, such as {@code name COLLATE NOCASE DESC}. */
+    private static final Pattern SORT_TERM = Pattern.compile(
+            "\\s*(\\w+)(\\s+COLLATE\\s+(BINARY|NOCASE|RTRIM))?(\\s+(ASC|DESC))?\\s*",
+            Pattern.CASE_INSENSITIVE);
+
+    /** No limit on the number of rows. */
+    static final int NO_LIMIT = -1;
+
+    private CheeseQuery() {
+    }
+
+    /**
+     * Builds the query.
+     *
+     * @param id            The row ID of the only cheese to select, or {@code null} for all.
+     * @param projection    The columns to return, {@code null} for all.
+     * @param selection     A {@code WHERE} clause, without {@code WHERE}.
+     * @param selectionArgs The values of the {@code ?} in {@code selection}.
+     * @param sortOrder     An {@code ORDER BY} clause, without {@code ORDER BY}.
+     * @param limit         The maximum number of rows, or {@link #NO_LIMIT}.
+     * @param offset        The number of rows to skip.
+     * @return The query.
+     * @throws IllegalArgumentException If an argument is invalid.
+     */
+    @NonNull
+    static SupportSQLiteQuery build(@Nullable Long id, @Nullable String[] projection,
+            @Nullable String selection, @Nullable String[] selectionArgs,
+            @Nullable String sortOrder, int limit, int offset) {
+        final SupportSQLiteQueryBuilder builder = SupportSQLiteQueryBuilder
+                .builder(Cheese.TABLE_NAME)
+                .columns(checkProjection(projection));
+        final List<Object> args = new ArrayList<>();
+        final StringBuilder where = new StringBuilder();
+        if (!TextUtils.isEmpty(selection)) {
+            checkSelection(selection);
+            where.append('(').append(selection).append(')');
+            if (selectionArgs != null) {
+                args.addAll(Arrays.asList(selectionArgs));
+            }
+        }
+        if (id != null) {
+            if (where.length() > 0) {
+                where.append(" AND ");
+            }
+            where.append(Cheese.COLUMN_ID).append(" = ?");
+            args.add(id);
+        }
+        if (where.length() > 0) {
+            builder.selection(where.toString(), args.toArray());
+        }
+        if (!TextUtils.isEmpty(sortOrder)) {
+            builder.orderBy(checkSortOrder(sortOrder));
+        }
+        if (limit < 0 && offset > 0) {
+            // SQLite only accepts an offset with a limit
+            limit = Integer.MAX_VALUE;
+        }
+        if (limit >= 0) {
+            builder.limit(offset > 0 ? offset + "," + limit : String.valueOf(limit));
+        }
+        return builder.create();
+    }
+
+    /**
+     * Checks that the selection is one expression that stays within the parentheses it is wrapped
+     * in: its parentheses are balanced, and it has no statement separator, comment or sub-query.
+     * Quoted strings and identifiers are skipped, as they may contain any of these.
+     *
+     * @throws IllegalArgumentException If the selection is invalid.
+     */
+    static void checkSelection(@NonNull String selection) {
+        final int length = selection.length();
+        int depth = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = selection.charAt(i);
+            if (c == '\'' || c == '"' || c == '`' || c == '[') {
+                // A doubled quote inside a literal just starts the next literal
+                final int end = selection.indexOf(c == '[' ? ']' : c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Invalid selection: " + selection);
+                }
+                i = end + 1;
+            } else if (Character.isLetter(c) || c == '_') {
+                final int start = i;
+                while (i < length && (Character.isLetterOrDigit(selection.charAt(i))
+                        || selection.charAt(i) == '_')) {
+                    i++;
+                }
+                if (selection.substring(start, i).equalsIgnoreCase("SELECT")) {
+                    throw new IllegalArgumentException("Invalid selection: " + selection);
+                }
+            } else {
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    depth--;
+                }
+                if (depth < 0 || c == ';' || selection.startsWith("--", i)
+                        || selection.startsWith("/*", i)) {
+                    throw new IllegalArgumentException("Invalid selection: " + selection);
+                }
+                i++;
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("Invalid selection: " + selection);
+        }
+    }
+
+    /**
+     * Compiles the selection against the table, so that an invalid one fails with an
+     * {@link IllegalArgumentException} before it is used, like other invalid arguments.
+     *
+     * @throws IllegalArgumentException If the selection is invalid.
+     */
+    static void checkSelectionCompiles(@NonNull SampleDatabase database,
+            @NonNull String selection) {
+        final SupportSQLiteStatement statement;
+        try {
+            statement = database.compileStatement("SELECT 1 FROM " + Cheese.TABLE_NAME
+                    + " WHERE (" + selection + ")");
+        } catch (SQLiteException e) {
+            throw new IllegalArgumentException("Invalid selection: " + selection, e);
+        }
+        try {
+            statement.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static String[] checkProjection(@Nullable String[] projection) {
+        if (projection == null) {
+            return COLUMNS.toArray(new String[0]);
+        }
+        for (String column : projection) {
+            if (!COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Unknown column: " + column);
+            }
+        }
+        return projection;
+    }
+
+    private static String checkSortOrder(String sortOrder) {
+        for (String term : sortOrder.split(",", -1)) {
+            final Matcher matcher = SORT_TERM.matcher(term);
+            if (!matcher.matches() || !COLUMNS.contains(matcher.group(1))) {
+                throw new IllegalArgumentException("Invalid sort order: " + sortOrder);
+            }
+        }
+        return sortOrder;
+    }
+
+}
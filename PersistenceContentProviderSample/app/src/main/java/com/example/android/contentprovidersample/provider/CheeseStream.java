@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.database.Cursor;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.sqlite.db.SupportSQLiteStatement;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+
+
+/**
+ * Reads and writes the Cheese table as newline delimited JSON, one cheese per line, such as
+ * <code>{"_id":1,"name":"Brie"}</code>.
+ *
+ * <p>Rows are written as they are read from the cursor, and imported in transactions of
+ * {@link #CHUNK_SIZE} rows, so a table of any size is transferred in constant memory.</p>
+ */
+class CheeseStream {
+
+    /** The MIME type of the stream. */
+    static final String MIME_TYPE = "application/x-ndjson";
+
+    /** The number of rows imported in each transaction. */
+    static final int CHUNK_SIZE = 500;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private CheeseStream() {
+    }
+
+    /**
+     * Writes all the rows of the cursor, which must have the {@link Cheese#COLUMN_ID} and
+     * {@link Cheese#COLUMN_NAME} columns.
+     *
+     * @return The number of rows written.
+     */
+    @WorkerThread
+    static int write(@NonNull Cursor cursor, @NonNull OutputStream out) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        final JsonWriter json = new JsonWriter(writer);
+        // Lenient, to write a top-level value per line
+        json.setLenient(true);
+        final int id = cursor.getColumnIndexOrThrow(Cheese.COLUMN_ID);
+        final int name = cursor.getColumnIndexOrThrow(Cheese.COLUMN_NAME);
+        int rows = 0;
+        while (cursor.moveToNext()) {
+            json.beginObject();
+            json.name(Cheese.COLUMN_ID).value(cursor.getLong(id));
+            json.name(Cheese.COLUMN_NAME).value(cursor.getString(name));
+            json.endObject();
+            writer.write('\n');
+            rows++;
+        }
+        json.flush();
+        return rows;
+    }
+
+    /**
+     * Imports the cheeses read from {@code in}. A cheese replaces the one with the same ID, and
+     * is inserted with a new ID if it has none.
+     *
+     * @return The number of rows imported.
+     * @throws IOException If the stream can't be read or parsed. The chunks imported before are
+     *                     kept.
+     */
+    @WorkerThread
+    static int read(@NonNull InputStream in, @NonNull SampleDatabase database)
+            throws IOException {
+        final JsonReader json = new JsonReader(
+                new BufferedReader(new InputStreamReader(in, UTF_8)));
+        // Lenient, to read a top-level value per line
+        json.setLenient(true);
+        final SupportSQLiteStatement statement = database.compileStatement(BulkOperations.UPSERT);
+        int rows = 0;
+        try {
+            int chunk;
+            do {
+                chunk = readChunk(json, database, statement);
+                rows += chunk;
+            } while (chunk == CHUNK_SIZE);
+        } finally {
+            statement.close();
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("RedundantThrows") /* This gets propagated up from the Callable */
+    private static int readChunk(final JsonReader json, SampleDatabase database,
+            final SupportSQLiteStatement statement) throws IOException {
+        return database.runInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                int rows = 0;
+                while (rows < CHUNK_SIZE && json.peek() != JsonToken.END_DOCUMENT) {
+                    readCheese(json, statement);
+                    statement.executeInsert();
+                    rows++;
+                }
+                return rows;
+            }
+        });
+    }
+
+    private static void readCheese(JsonReader json, SupportSQLiteStatement statement)
+            throws IOException {
+        statement.clearBindings();
+        json.beginObject();
+        while (json.hasNext()) {
+            final String field = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.skipValue();
+            } else if (Cheese.COLUMN_ID.equals(field)) {
+                statement.bindLong(1, json.nextLong());
+            } else if (Cheese.COLUMN_NAME.equals(field)) {
+                statement.bindString(2, json.nextString());
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+}
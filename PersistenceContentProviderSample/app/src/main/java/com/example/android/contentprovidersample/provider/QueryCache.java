@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.contentprovidersample.provider;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.InvalidationTracker;
+import com.example.android.contentprovidersample.data.Cheese;
+import com.example.android.contentprovidersample.data.SampleDatabase;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps the results of recent queries of the provider, so the same query asked again by several
+ * clients doesn't read the database each time.
+ *
+ * <p>Only results of up to {@link #MAX_ROWS} rows are kept, as a copy of their values. An entry is
+ * removed when a change of its URI is notified: the change of a cheese removes the queries of that
+ * cheese and of the whole table, and a change of the whole table removes everything. Writes made
+ * to the database without the provider are caught by Room's {@link InvalidationTracker}, which
+ * empties the cache. The tracker reports the writes of the provider too, so they also empty the
+ * cache shortly after their own entries are removed.</p>
+ */
+class QueryCache {
+
+    /** The number of results kept. */
+    private static final int MAX_ENTRIES = 64;
+
+    /** The largest result kept. */
+    static final int MAX_ROWS = 100;
+
+    private final LruCache<String, Result> mResults = new LruCache<>(MAX_ENTRIES);
+
+    /** Incremented by each change, so a query running meanwhile isn't cached. */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    private final AtomicLong mHits = new AtomicLong();
+
+    private final AtomicLong mMisses = new AtomicLong();
+
+    private final AtomicLong mInvalidations = new AtomicLong();
+
+    private final InvalidationTracker.Observer mObserver =
+            new InvalidationTracker.Observer(Cheese.TABLE_NAME) {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidateAll();
+                }
+            };
+
+    /**
+     * Guards the change of the observed database. It is not the lock of the entries: Room calls
+     * {@link #mObserver} with its own lock held, which adding the observer takes too.
+     */
+    private final Object mObserveLock = new Object();
+
+    /** The database whose changes empty the cache. */
+    private volatile SampleDatabase mDatabase;
+
+    /**
+     * Empties the cache when the tables of {@code database} change. Only the last database
+     * observed is followed.
+     */
+    void observe(@NonNull SampleDatabase database) {
+        if (mDatabase == database) {
+            return;
+        }
+        synchronized (mObserveLock) {
+            if (mDatabase == database) {
+                return;
+            }
+            if (mDatabase != null) {
+                mDatabase.getInvalidationTracker().removeObserver(mObserver);
+            }
+            database.getInvalidationTracker().addObserver(mObserver);
+            mDatabase = database;
+            invalidateAll();
+        }
+    }
+
+    /**
+     * @return The key of a query.
+     */
+    @NonNull
+    static String key(@NonNull Uri uri, @Nullable String[] projection,
+            @Nullable String selection, @Nullable String[] selectionArgs,
+            @Nullable String sortOrder, int limit, int offset) {
+        return uri + "\n" + Arrays.toString(projection) + "\n" + selection + "\n"
+                + Arrays.toString(selectionArgs) + "\n" + sortOrder + "\n" + limit + "\n" + offset;
+    }
+
+    /**
+     * @return The generation to pass to {@link #put(String, int, Cursor)} for a query starting
+     * now.
+     */
+    int generation() {
+        return mGeneration.get();
+    }
+
+    /**
+     * @return A cursor over the cached result of the query, or {@code null} if it has to run.
+     */
+    @Nullable
+    Cursor get(@NonNull String key) {
+        final Result result = mResults.get(key);
+        if (result == null) {
+            mMisses.incrementAndGet();
+            return null;
+        }
+        mHits.incrementAndGet();
+        return result.newCursor();
+    }
+
+    /**
+     * Keeps the result of a query, unless it is too large or the data changed since it started.
+     *
+     * @param key        The key of the query.
+     * @param generation The {@link #generation()} when the query started.
+     * @param cursor     The result of the query.
+     * @return The cursor to return instead of {@code cursor}, which is closed if it was copied.
+     */
+    @NonNull
+    Cursor put(@NonNull String key, int generation, @NonNull Cursor cursor) {
+        if (cursor.getCount() > MAX_ROWS) {
+            return cursor;
+        }
+        final Result result = Result.copy(cursor);
+        cursor.close();
+        synchronized (this) {
+            // Under the lock of the invalidations, so none can run between the check and the put
+            if (generation == mGeneration.get()) {
+                mResults.put(key, result);
+            }
+        }
+        return result.newCursor();
+    }
+
+    /**
+     * Removes the results that may have changed with {@code uri}.
+     *
+     * @param uri   The changed URI, either of a cheese or of the whole table.
+     * @param table The URI of the whole table.
+     */
+    synchronized void invalidate(@NonNull Uri uri, @NonNull Uri table) {
+        if (uri.equals(table)) {
+            invalidateAll();
+            return;
+        }
+        mGeneration.incrementAndGet();
+        mInvalidations.incrementAndGet();
+        final String itemPrefix = uri + "\n";
+        final String tablePrefix = table + "\n";
+        for (String key : mResults.snapshot().keySet()) {
+            if (key.startsWith(itemPrefix) || key.startsWith(tablePrefix)) {
+                mResults.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all the results.
+     */
+    synchronized void invalidateAll() {
+        mGeneration.incrementAndGet();
+        mInvalidations.incrementAndGet();
+        mResults.evictAll();
+    }
+
+    long getHits() {
+        return mHits.get();
+    }
+
+    long getMisses() {
+        return mMisses.get();
+    }
+
+    long getInvalidations() {
+        return mInvalidations.get();
+    }
+
+    /**
+     * The values of a result.
+     */
+    private static class Result {
+
+        final String[] mColumns;
+        final Object[][] mRows;
+
+        private Result(String[] columns, Object[][] rows) {
+            mColumns = columns;
+            mRows = rows;
+        }
+
+        static Result copy(Cursor cursor) {
+            final String[] columns = cursor.getColumnNames();
+            final Object[][] rows = new Object[cursor.getCount()][];
+            cursor.moveToPosition(-1);
+            for (int i = 0; cursor.moveToNext(); i++) {
+                final Object[] row = new Object[columns.length];
+                for (int column = 0; column < columns.length; column++) {
+                    switch (cursor.getType(column)) {
+                        case Cursor.FIELD_TYPE_INTEGER:
+                            row[column] = cursor.getLong(column);
+                            break;
+                        case Cursor.FIELD_TYPE_FLOAT:
+                            row[column] = cursor.getDouble(column);
+                            break;
+                        case Cursor.FIELD_TYPE_STRING:
+                            row[column] = cursor.getString(column);
+                            break;
+                        case Cursor.FIELD_TYPE_BLOB:
+                            row[column] = cursor.getBlob(column);
+                            break;
+                        default:
+                            row[column] = null;
+                    }
+                }
+                rows[i] = row;
+            }
+            return new Result(columns, rows);
+        }
+
+        Cursor newCursor() {
+            final MatrixCursor cursor = new MatrixCursor(mColumns, mRows.length);
+            for (Object[] row : mRows) {
+                cursor.addRow(row);
+            }
+            return cursor;
+        }
+
+    }
+
+}
@@ -16,23 +16,39 @@
 
 package com.example.android.contentprovidersample.provider;
 
+import android.content.ClipDescription;
 import android.content.ContentProvider;
 import android.content.ContentProviderOperation;
 import android.content.ContentProviderResult;
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.OperationApplicationException;
 import android.content.UriMatcher;
+import android.content.res.AssetFileDescriptor;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.ParcelFileDescriptor;
+import android.text.TextUtils;
+import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.sqlite.db.SupportSQLiteQuery;
 import com.example.android.contentprovidersample.data.Cheese;
-import com.example.android.contentprovidersample.data.CheeseDao;
 import com.example.android.contentprovidersample.data.SampleDatabase;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -43,6 +59,8 @@ import java.util.concurrent.Callable;
  */
 public class SampleContentProvider extends ContentProvider {
 
+    private static final String TAG = "SampleContentProvider";
+
     /** The authority of this content provider. */
     public static final String AUTHORITY = "com.example.android.contentprovidersample.provider";
 
@@ -50,6 +68,78 @@ public class SampleContentProvider extends ContentProvider {
     public static final Uri URI_CHEESE = Uri.parse(
             "content://" + AUTHORITY + "/" + Cheese.TABLE_NAME);
 
+    /**
+     * The {@link #call(String, String, Bundle)} method inserting or replacing many cheeses. The
+     * extras hold their names in {@link #EXTRA_NAMES} and, optionally, their IDs in
+     * {@link #EXTRA_IDS}. The result holds the number of cheeses written in
+     * {@link #EXTRA_COUNT}.
+     */
+    public static final String METHOD_UPSERT = "upsert";
+
+    /**
+     * The {@link #call(String, String, Bundle)} method deleting the cheeses with an ID from
+     * {@link #EXTRA_FROM_ID} included to {@link #EXTRA_TO_ID} excluded. The result holds the number
+     * of cheeses deleted in {@link #EXTRA_COUNT}.
+     */
+    public static final String METHOD_DELETE_RANGE = "deleteRange";
+
+    /**
+     * The {@link #call(String, String, Bundle)} method counting the cheeses. The result holds the
+     * number of cheeses in {@link #EXTRA_COUNT}.
+     */
+    public static final String METHOD_COUNT = "count";
+
+    /** The {@code long[]} of cheese IDs. */
+    public static final String EXTRA_IDS = "ids";
+
+    /** The {@code String[]} of cheese names. */
+    public static final String EXTRA_NAMES = "names";
+
+    /** The {@code long} first ID of a range. */
+    public static final String EXTRA_FROM_ID = "fromId";
+
+    /** The {@code long} ID after the last one of a range. */
+    public static final String EXTRA_TO_ID = "toId";
+
+    /** The {@code int} number of cheeses. */
+    public static final String EXTRA_COUNT = "count";
+
+    /**
+     * The {@link #call(String, String, Bundle)} method returning the statistics of the query
+     * cache, in {@link #EXTRA_CACHE_HITS}, {@link #EXTRA_CACHE_MISSES} and
+     * {@link #EXTRA_CACHE_INVALIDATIONS}.
+     */
+    public static final String METHOD_CACHE_STATS = "cacheStats";
+
+    /** The {@code long} number of queries answered from the cache. */
+    public static final String EXTRA_CACHE_HITS = "cacheHits";
+
+    /** The {@code long} number of queries that read the database. */
+    public static final String EXTRA_CACHE_MISSES = "cacheMisses";
+
+    /** The {@code long} number of changes that removed cached queries. */
+    public static final String EXTRA_CACHE_INVALIDATIONS = "cacheInvalidations";
+
+    /**
+     * A {@code long} query argument selecting the cheeses with a greater ID, in the order of
+     * their IDs. With {@link ContentResolver#QUERY_ARG_LIMIT}, it reads the table one page at a
+     * time, each page starting from the ID of the last one, so it costs the same wherever it is in
+     * the table. The cursor holds the key of the next page in {@link #EXTRA_NEXT_ID}.
+     */
+    public static final String QUERY_ARG_AFTER_ID = "after_id";
+
+    /**
+     * Like {@link #QUERY_ARG_AFTER_ID}, but selecting the cheeses with a smaller ID, in the
+     * reverse order of their IDs.
+     */
+    public static final String QUERY_ARG_BEFORE_ID = "before_id";
+
+    /**
+     * The {@code long} to pass with the same keyset argument to get the next page. Missing from the
+     * last page.
+     */
+    public static final String EXTRA_NEXT_ID = "next_id";
+
     /** The match code for some items in the Cheese table. */
     private static final int CODE_CHEESE_DIR = 1;
 
@@ -64,6 +154,29 @@ public class SampleContentProvider extends ContentProvider {
         MATCHER.addURI(AUTHORITY, Cheese.TABLE_NAME + "/*", CODE_CHEESE_ITEM);
     }
 
+    /** The results of recent queries. */
+    private final QueryCache mCache = new QueryCache();
+
+    /** Sends the changes of a batch operation together, once it is committed. */
+    private final ChangeNotifier mNotifier = new ChangeNotifier(URI_CHEESE, mCache);
+
+    /** Runs the exports and imports of {@link #openFile(Uri, String)}. */
+    private final ExecutorService mStreamExecutor = Executors.newCachedThreadPool();
+
+    /** Tells the observers that the dummy data is in, once an empty database is seeded. */
+    private final Runnable mNotifySeeded = new Runnable() {
+        @Override
+        public void run() {
+            // The seeding doesn't go through the provider, so the empty results cached meanwhile
+            // are removed here rather than left to the tracker
+            mCache.invalidateAll();
+            final Context context = getContext();
+            if (context != null) {
+                context.getContentResolver().notifyChange(URI_CHEESE, null);
+            }
+        }
+    };
+
     @Override
     public boolean onCreate() {
         return true;
@@ -73,18 +186,133 @@ public class SampleContentProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
             @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder,
+                CheeseQuery.NO_LIMIT, 0, null);
+    }
+
+    /**
+     * Supports the SQL selection and sort order, {@link ContentResolver#QUERY_ARG_LIMIT},
+     * {@link ContentResolver#QUERY_ARG_OFFSET} and the keyset paging arguments
+     * {@link #QUERY_ARG_AFTER_ID} and {@link #QUERY_ARG_BEFORE_ID}. The arguments that were used
+     * are listed in the {@link ContentResolver#EXTRA_HONORED_ARGS} of the cursor.
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+            @Nullable Bundle queryArgs, @Nullable CancellationSignal cancellationSignal) {
+        if (queryArgs == null) {
+            queryArgs = Bundle.EMPTY;
+        }
+        final List<String> honored = new ArrayList<>();
+        String selection = honor(queryArgs, ContentResolver.QUERY_ARG_SQL_SELECTION,
+                honored);
+        String sortOrder = honor(queryArgs, ContentResolver.QUERY_ARG_SQL_SORT_ORDER,
+                honored);
+        String[] selectionArgs = queryArgs.getStringArray(
+                ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS);
+        if (selection != null && selectionArgs != null) {
+            honored.add(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS);
+        }
+        final String keysetArg = queryArgs.containsKey(QUERY_ARG_AFTER_ID) ? QUERY_ARG_AFTER_ID
+                : queryArgs.containsKey(QUERY_ARG_BEFORE_ID) ? QUERY_ARG_BEFORE_ID : null;
+        if (keysetArg != null) {
+            if (sortOrder != null) {
+                throw new IllegalArgumentException(keysetArg + " can't have a sort order");
+            }
+            if (selection != null) {
+                // Checked before it is wrapped, which would balance a stray parenthesis
+                CheeseQuery.checkSelection(selection);
+            }
+            final boolean after = QUERY_ARG_AFTER_ID.equals(keysetArg);
+            final String keyset = Cheese.COLUMN_ID + (after ? " > ?" : " < ?");
+            if (selection == null) {
+                selection = keyset;
+                selectionArgs = null;
+            } else {
+                selection = "(" + selection + ") AND " + keyset;
+            }
+            selectionArgs = append(selectionArgs, String.valueOf(queryArgs.getLong(keysetArg)));
+            sortOrder = Cheese.COLUMN_ID + (after ? " ASC" : " DESC");
+            projection = withId(projection);
+            honored.add(keysetArg);
+        }
+        int limit = CheeseQuery.NO_LIMIT;
+        if (queryArgs.containsKey(ContentResolver.QUERY_ARG_LIMIT)) {
+            limit = queryArgs.getInt(ContentResolver.QUERY_ARG_LIMIT);
+            honored.add(ContentResolver.QUERY_ARG_LIMIT);
+        }
+        int offset = 0;
+        if (queryArgs.containsKey(ContentResolver.QUERY_ARG_OFFSET)) {
+            offset = queryArgs.getInt(ContentResolver.QUERY_ARG_OFFSET);
+            honored.add(ContentResolver.QUERY_ARG_OFFSET);
+        }
+        final Cursor cursor = query(uri, projection, selection, selectionArgs, sortOrder,
+                limit, offset, cancellationSignal);
+        if (cursor != null) {
+            final Bundle extras = new Bundle();
+            extras.putStringArray(ContentResolver.EXTRA_HONORED_ARGS,
+                    honored.toArray(new String[0]));
+            // A full page may not be the last one
+            if (keysetArg != null && limit > 0 && cursor.getCount() == limit
+                    && cursor.moveToLast()) {
+                extras.putLong(EXTRA_NEXT_ID,
+                        cursor.getLong(cursor.getColumnIndexOrThrow(Cheese.COLUMN_ID)));
+                cursor.moveToPosition(-1);
+            }
+            cursor.setExtras(extras);
+        }
+        return cursor;
+    }
+
+    private static String[] append(@Nullable String[] array, String value) {
+        if (array == null) {
+            return new String[]{value};
+        }
+        final String[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    /** Adds the ID column to a projection, to find the key of the next page. */
+    @Nullable
+    private static String[] withId(@Nullable String[] projection) {
+        if (projection == null || Arrays.asList(projection).contains(Cheese.COLUMN_ID)) {
+            return projection;
+        }
+        return append(projection, Cheese.COLUMN_ID);
+    }
+
+    /**
+     * Runs the query in SQL, so only the requested rows and columns are copied to the client.
+     * Small results are kept in {@link #mCache}, and the same query asked again is answered from
+     * there until the data changes.
+     */
+    @Nullable
+    private Cursor query(@NonNull Uri uri, @Nullable String[] projection,
+            @Nullable String selection, @Nullable String[] selectionArgs,
+            @Nullable String sortOrder, int limit, int offset,
+            @Nullable CancellationSignal cancellationSignal) {
         final int code = MATCHER.match(uri);
         if (code == CODE_CHEESE_DIR || code == CODE_CHEESE_ITEM) {
             final Context context = getContext();
             if (context == null) {
                 return null;
             }
-            CheeseDao cheese = SampleDatabase.getInstance(context).cheese();
-            final Cursor cursor;
-            if (code == CODE_CHEESE_DIR) {
-                cursor = cheese.selectAll();
-            } else {
-                cursor = cheese.selectById(ContentUris.parseId(uri));
+            final Long id = code == CODE_CHEESE_ITEM ? ContentUris.parseId(uri) : null;
+            final SupportSQLiteQuery query = CheeseQuery.build(id, projection, selection,
+                    selectionArgs, sortOrder, limit, offset);
+            final SampleDatabase database = getDatabase(context);
+            mCache.observe(database);
+            final String key = QueryCache.key(id == null ? URI_CHEESE : itemUri(id), projection,
+                    selection, selectionArgs, sortOrder, limit, offset);
+            Cursor cursor = mCache.get(key);
+            if (cursor == null) {
+                if (!TextUtils.isEmpty(selection)) {
+                    CheeseQuery.checkSelectionCompiles(database, selection);
+                }
+                final int generation = mCache.generation();
+                cursor = mCache.put(key, generation, database.query(query, cancellationSignal));
             }
             cursor.setNotificationUri(context.getContentResolver(), uri);
             return cursor;
@@ -93,6 +321,25 @@ public class SampleContentProvider extends ContentProvider {
         }
     }
 
+    /** The database, seeded with {@link #mNotifySeeded} called once the dummy data is in. */
+    private SampleDatabase getDatabase(Context context) {
+        return SampleDatabase.getInstance(context, mNotifySeeded);
+    }
+
+    /** The URI of a cheese, in the same form whatever the form asked by the client. */
+    private static Uri itemUri(long id) {
+        return ContentUris.withAppendedId(URI_CHEESE, id);
+    }
+
+    @Nullable
+    private static String honor(Bundle queryArgs, String key, List<String> honored) {
+        final String value = queryArgs.getString(key);
+        if (value != null) {
+            honored.add(key);
+        }
+        return value;
+    }
+
     @Nullable
     @Override
     public String getType(@NonNull Uri uri) {
@@ -115,9 +362,10 @@ public class SampleContentProvider extends ContentProvider {
                 if (context == null) {
                     return null;
                 }
-                final long id = SampleDatabase.getInstance(context).cheese()
+                final long id = getDatabase(context).cheese()
                         .insert(Cheese.fromContentValues(values));
-                context.getContentResolver().notifyChange(uri, null);
+                mNotifier.notifyChange(context.getContentResolver(), uri,
+                        ContentResolver.NOTIFY_INSERT);
                 return ContentUris.withAppendedId(uri, id);
             case CODE_CHEESE_ITEM:
                 throw new IllegalArgumentException("Invalid URI, cannot insert with ID: " + uri);
@@ -137,9 +385,11 @@ public class SampleContentProvider extends ContentProvider {
                 if (context == null) {
                     return 0;
                 }
-                final int count = SampleDatabase.getInstance(context).cheese()
-                        .deleteById(ContentUris.parseId(uri));
-                context.getContentResolver().notifyChange(uri, null);
+                final long id = ContentUris.parseId(uri);
+                final int count = getDatabase(context).cheese()
+                        .deleteById(id);
+                mNotifier.notifyChange(context.getContentResolver(), itemUri(id),
+                        ContentResolver.NOTIFY_DELETE);
                 return count;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
@@ -159,15 +409,210 @@ public class SampleContentProvider extends ContentProvider {
                 }
                 final Cheese cheese = Cheese.fromContentValues(values);
                 cheese.id = ContentUris.parseId(uri);
-                final int count = SampleDatabase.getInstance(context).cheese()
+                final int count = getDatabase(context).cheese()
                         .update(cheese);
-                context.getContentResolver().notifyChange(uri, null);
+                mNotifier.notifyChange(context.getContentResolver(), itemUri(cheese.id),
+                        ContentResolver.NOTIFY_UPDATE);
                 return count;
             default:
                 throw new IllegalArgumentException("Unknown URI: " + uri);
         }
     }
 
+    /**
+     * Streams the whole Cheese table, one cheese per line in the {@link CheeseStream} format.
+     *
+     * <p>With the mode {@code "r"}, the returned pipe exports the table. With the mode
+     * {@code "w"}, the cheeses written to the returned pipe are imported, in transactions of
+     * {@link CheeseStream#CHUNK_SIZE} rows. The rows are transferred as they are read, so the
+     * size of the table doesn't matter.</p>
+     */
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode)
+            throws FileNotFoundException {
+        switch (MATCHER.match(uri)) {
+            case CODE_CHEESE_DIR:
+                final Context context = getContext();
+                if (context == null) {
+                    return null;
+                }
+                final SampleDatabase database = getDatabase(context);
+                if ("r".equals(mode)) {
+                    return startExport(database);
+                } else if ("w".equals(mode) || "wt".equals(mode)) {
+                    return startImport(context, database);
+                }
+                throw new FileNotFoundException("Unsupported mode " + mode + " for " + uri);
+            case CODE_CHEESE_ITEM:
+                throw new IllegalArgumentException("Invalid URI, cannot stream an item: " + uri);
+            default:
+                throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+    }
+
+    @Nullable
+    @Override
+    public String[] getStreamTypes(@NonNull Uri uri, @NonNull String mimeTypeFilter) {
+        if (MATCHER.match(uri) == CODE_CHEESE_DIR
+                && ClipDescription.compareMimeTypes(CheeseStream.MIME_TYPE, mimeTypeFilter)) {
+            return new String[]{CheeseStream.MIME_TYPE};
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public AssetFileDescriptor openTypedAssetFile(@NonNull Uri uri,
+            @NonNull String mimeTypeFilter, @Nullable Bundle opts)
+            throws FileNotFoundException {
+        if (MATCHER.match(uri) == CODE_CHEESE_DIR
+                && ClipDescription.compareMimeTypes(CheeseStream.MIME_TYPE, mimeTypeFilter)) {
+            final ParcelFileDescriptor pipe = openFile(uri, "r");
+            return pipe == null ? null
+                    : new AssetFileDescriptor(pipe, 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+        }
+        return super.openTypedAssetFile(uri, mimeTypeFilter, opts);
+    }
+
+    private ParcelFileDescriptor startExport(final SampleDatabase database)
+            throws FileNotFoundException {
+        final ParcelFileDescriptor[] pipe = createPipe();
+        mStreamExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ParcelFileDescriptor writeSide = pipe[1];
+                final Cursor cursor = database.query(CheeseQuery.build(null, null, null, null,
+                        Cheese.COLUMN_ID, CheeseQuery.NO_LIMIT, 0));
+                try {
+                    CheeseStream.write(cursor,
+                            new ParcelFileDescriptor.AutoCloseOutputStream(writeSide));
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Export failed", e);
+                    closeWithError(writeSide, e);
+                } finally {
+                    cursor.close();
+                    closeQuietly(writeSide);
+                }
+            }
+        });
+        return pipe[0];
+    }
+
+    private ParcelFileDescriptor startImport(final Context context,
+            final SampleDatabase database) throws FileNotFoundException {
+        final ParcelFileDescriptor[] pipe = createPipe();
+        mStreamExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ParcelFileDescriptor readSide = pipe[0];
+                try {
+                    CheeseStream.read(
+                            new ParcelFileDescriptor.AutoCloseInputStream(readSide), database);
+                } catch (IOException | RuntimeException e) {
+                    Log.w(TAG, "Import failed", e);
+                    closeWithError(readSide, e);
+                } finally {
+                    closeQuietly(readSide);
+                    // The chunks committed before a failure are in the table too
+                    mNotifier.notifyChange(context.getContentResolver(), URI_CHEESE,
+                            ContentResolver.NOTIFY_INSERT);
+                }
+            }
+        });
+        return pipe[1];
+    }
+
+    /**
+     * Creates a pipe that, when possible, reports an error of one side to the other, so that a
+     * failed transfer isn't taken for a complete one.
+     */
+    private static ParcelFileDescriptor[] createPipe() throws FileNotFoundException {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                return ParcelFileDescriptor.createReliablePipe();
+            }
+            return ParcelFileDescriptor.createPipe();
+        } catch (IOException e) {
+            throw new FileNotFoundException("Cannot create a pipe: " + e.getMessage());
+        }
+    }
+
+    private static void closeWithError(ParcelFileDescriptor fd, Exception e) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            try {
+                fd.closeWithError(String.valueOf(e.getMessage()));
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void closeQuietly(ParcelFileDescriptor fd) {
+        try {
+            fd.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Runs one of the bulk operations {@link #METHOD_UPSERT}, {@link #METHOD_DELETE_RANGE} or
+     * {@link #METHOD_COUNT}. Their rows are packed in arrays, so a whole batch crosses the binder
+     * and is parsed at once, and is written in a single transaction. Also returns the statistics
+     * of the query cache with {@link #METHOD_CACHE_STATS}.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        final Context context = getContext();
+        if (context == null) {
+            return null;
+        }
+        if (extras == null) {
+            extras = Bundle.EMPTY;
+        }
+        final SampleDatabase database = getDatabase(context);
+        final int count;
+        switch (method) {
+            case METHOD_UPSERT:
+                final String[] names = extras.getStringArray(EXTRA_NAMES);
+                if (names == null) {
+                    throw new IllegalArgumentException("Missing " + EXTRA_NAMES);
+                }
+                count = BulkOperations.upsert(database, extras.getLongArray(EXTRA_IDS), names);
+                if (count > 0) {
+                    mNotifier.notifyChange(context.getContentResolver(), URI_CHEESE,
+                            ContentResolver.NOTIFY_INSERT | ContentResolver.NOTIFY_UPDATE);
+                }
+                break;
+            case METHOD_DELETE_RANGE:
+                if (!extras.containsKey(EXTRA_FROM_ID) || !extras.containsKey(EXTRA_TO_ID)) {
+                    throw new IllegalArgumentException(
+                            "Missing " + EXTRA_FROM_ID + " or " + EXTRA_TO_ID);
+                }
+                count = BulkOperations.deleteRange(database, extras.getLong(EXTRA_FROM_ID),
+                        extras.getLong(EXTRA_TO_ID));
+                if (count > 0) {
+                    mNotifier.notifyChange(context.getContentResolver(), URI_CHEESE,
+                            ContentResolver.NOTIFY_DELETE);
+                }
+                break;
+            case METHOD_COUNT:
+                count = database.cheese().count();
+                break;
+            case METHOD_CACHE_STATS:
+                final Bundle stats = new Bundle();
+                stats.putLong(EXTRA_CACHE_HITS, mCache.getHits());
+                stats.putLong(EXTRA_CACHE_MISSES, mCache.getMisses());
+                stats.putLong(EXTRA_CACHE_INVALIDATIONS, mCache.getInvalidations());
+                return stats;
+            default:
+                return super.call(method, arg, extras);
+        }
+        final Bundle result = new Bundle();
+        result.putInt(EXTRA_COUNT, count);
+        return result;
+    }
+
     @SuppressWarnings("RedundantThrows") /* This gets propagated up from the Callable */
     @NonNull
     @Override
@@ -178,13 +623,30 @@ public class SampleContentProvider extends ContentProvider {
         if (context == null) {
             return new ContentProviderResult[0];
         }
-        final SampleDatabase database = SampleDatabase.getInstance(context);
-        return database.runInTransaction(new Callable<ContentProviderResult[]>() {
-            @Override
-            public ContentProviderResult[] call() throws OperationApplicationException {
-                return SampleContentProvider.super.applyBatch(operations);
+        final SampleDatabase database = getDatabase(context);
+        // The operations only collect their changes, which are sent once after the commit
+        final boolean outermost = mNotifier.begin();
+        boolean committed = false;
+        try {
+            final ContentProviderResult[] results = database.runInTransaction(
+                    new Callable<ContentProviderResult[]>() {
+                        @Override
+                        public ContentProviderResult[] call()
+                                throws OperationApplicationException {
+                            return SampleContentProvider.super.applyBatch(operations);
+                        }
+                    });
+            committed = true;
+            return results;
+        } finally {
+            if (outermost) {
+                if (committed) {
+                    mNotifier.commit(context.getContentResolver());
+                } else {
+                    mNotifier.discard();
+                }
             }
-        });
+        }
     }
 
     @Override
@@ -195,12 +657,15 @@ public class SampleContentProvider extends ContentProvider {
                 if (context == null) {
                     return 0;
                 }
-                final SampleDatabase database = SampleDatabase.getInstance(context);
+                final SampleDatabase database = getDatabase(context);
                 final Cheese[] cheeses = new Cheese[valuesArray.length];
                 for (int i = 0; i < valuesArray.length; i++) {
                     cheeses[i] = Cheese.fromContentValues(valuesArray[i]);
                 }
-                return database.cheese().insertAll(cheeses).length;
+                final int count = database.cheese().insertAll(cheeses).length;
+                mNotifier.notifyChange(context.getContentResolver(), uri,
+                        ContentResolver.NOTIFY_INSERT);
+                return count;
             case CODE_CHEESE_ITEM:
                 throw new IllegalArgumentException("Invalid URI, cannot insert with ID: " + uri);
             default:
@@ -19,6 +19,8 @@ package com.example.android.persistence.migrations;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
@@ -26,22 +28,22 @@ import java.util.concurrent.Executors;
  * Global executor pools for the whole application.
  * <p>
  * Grouping tasks like this avoids the effects of task starvation (e.g. disk reads don't wait behind
- * webservice requests).
+ * webservice requests). Each pool is instrumented, see {@link #getStats()}.
  */
 public class AppExecutors {
 
     private static final int THREAD_COUNT = 3;
 
-    private final Executor diskIO;
+    private final InstrumentedExecutor diskIO;
 
-    private final Executor networkIO;
+    private final InstrumentedExecutor networkIO;
 
-    private final Executor mainThread;
+    private final InstrumentedExecutor mainThread;
 
     AppExecutors(Executor diskIO, Executor networkIO, Executor mainThread) {
-        this.diskIO = diskIO;
-        this.networkIO = networkIO;
-        this.mainThread = mainThread;
+        this.diskIO = new InstrumentedExecutor("diskIO", diskIO);
+        this.networkIO = new InstrumentedExecutor("networkIO", networkIO);
+        this.mainThread = new InstrumentedExecutor("mainThread", mainThread);
     }
 
     public AppExecutors() {
@@ -61,6 +63,19 @@ public class AppExecutors {
         return mainThread;
     }
 
+    /**
+     * Queue depth, rejections and queue wait and run time histograms of every pool, so a backlog
+     * behind long tasks shows up in tests and logs.
+     */
+    @NonNull
+    public List<InstrumentedExecutor.Stats> getStats() {
+        List<InstrumentedExecutor.Stats> stats = new ArrayList<>(3);
+        stats.add(diskIO.snapshot());
+        stats.add(networkIO.snapshot());
+        stats.add(mainThread.snapshot());
+        return stats;
+    }
+
     private static class MainThreadExecutor implements Executor {
         private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
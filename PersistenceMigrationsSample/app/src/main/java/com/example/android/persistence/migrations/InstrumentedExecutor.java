@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import androidx.annotation.NonNull;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs tasks on another executor while recording how long they waited in its queue, how long they
+ * ran, how many were waiting and how many were rejected.
+ */
+public class InstrumentedExecutor implements Executor {
+
+    private final String mName;
+
+    private final Executor mExecutor;
+
+    private final LatencyHistogram mWaitTime = new LatencyHistogram();
+
+    private final LatencyHistogram mRunTime = new LatencyHistogram();
+
+    private final AtomicInteger mQueueDepth = new AtomicInteger();
+
+    private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+    private final AtomicLong mRejected = new AtomicLong();
+
+    public InstrumentedExecutor(@NonNull String name, @NonNull Executor executor) {
+        mName = name;
+        mExecutor = executor;
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        final long queuedAt = System.nanoTime();
+        int depth = mQueueDepth.incrementAndGet();
+        int maxDepth = mMaxQueueDepth.get();
+        while (depth > maxDepth && !mMaxQueueDepth.compareAndSet(maxDepth, depth)) {
+            maxDepth = mMaxQueueDepth.get();
+        }
+        try {
+            mExecutor.execute(() -> {
+                long startedAt = System.nanoTime();
+                mQueueDepth.decrementAndGet();
+                mWaitTime.record(startedAt - queuedAt);
+                try {
+                    command.run();
+                } finally {
+                    mRunTime.record(System.nanoTime() - startedAt);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mQueueDepth.decrementAndGet();
+            mRejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @NonNull
+    public Stats snapshot() {
+        return new Stats(mName, mQueueDepth.get(), mMaxQueueDepth.get(), mRejected.get(),
+                mWaitTime.snapshot(), mRunTime.snapshot());
+    }
+
+    /**
+     * What an {@link InstrumentedExecutor} recorded since it was created.
+     */
+    public static class Stats {
+        @NonNull
+        public final String name;
+        /** Tasks submitted but not started yet. */
+        public final int queueDepth;
+        public final int maxQueueDepth;
+        public final long rejected;
+        /** Time between submitting a task and the task starting. */
+        @NonNull
+        public final LatencyHistogram.Snapshot waitTime;
+        /** Time the tasks took to run, once finished. */
+        @NonNull
+        public final LatencyHistogram.Snapshot runTime;
+
+        Stats(@NonNull String name, int queueDepth, int maxQueueDepth, long rejected,
+                @NonNull LatencyHistogram.Snapshot waitTime,
+                @NonNull LatencyHistogram.Snapshot runTime) {
+            this.name = name;
+            this.queueDepth = queueDepth;
+            this.maxQueueDepth = maxQueueDepth;
+            this.rejected = rejected;
+            this.waitTime = waitTime;
+            this.runTime = runTime;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: queued=%d (max %d) rejected=%d wait[%s] run[%s]",
+                    name, queueDepth, maxQueueDepth, rejected, waitTime, runTime);
+        }
+    }
+}
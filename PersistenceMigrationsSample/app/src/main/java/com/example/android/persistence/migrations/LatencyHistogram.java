@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.example.android.persistence.migrations;
+
+import androidx.annotation.NonNull;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations, in power of two buckets of microseconds: bucket {@code i}
+ * counts the durations shorter than 2^i microseconds that didn't fit in the previous bucket.
+ */
+public class LatencyHistogram {
+
+    static final int BUCKET_COUNT = 32;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong mCount = new AtomicLong();
+
+    private final AtomicLong mTotalNanos = new AtomicLong();
+
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(bucketOf(nanos));
+        mCount.incrementAndGet();
+        mTotalNanos.addAndGet(nanos);
+        long max = mMaxNanos.get();
+        while (nanos > max && !mMaxNanos.compareAndSet(max, nanos)) {
+            max = mMaxNanos.get();
+        }
+    }
+
+    /**
+     * Copy the current counts. Durations recorded while copying may be missing from some of the
+     * counts, which is fine for monitoring.
+     */
+    @NonNull
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+        }
+        return new Snapshot(buckets, mCount.get(), mTotalNanos.get(), mMaxNanos.get());
+    }
+
+    static int bucketOf(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Upper bound of bucket {@code index}, in nanoseconds.
+     */
+    public static long bucketUpperBoundNanos(int index) {
+        return TimeUnit.MICROSECONDS.toNanos(1L << index);
+    }
+
+    /**
+     * Counts of a {@link LatencyHistogram} at a point in time.
+     */
+    public static class Snapshot {
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mTotalNanos;
+        private final long mMaxNanos;
+
+        Snapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+            mBuckets = buckets;
+            mCount = count;
+            mTotalNanos = totalNanos;
+            mMaxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        /**
+         * Count of each bucket, see {@link LatencyHistogram#bucketUpperBoundNanos(int)}.
+         */
+        @NonNull
+        public long[] getBucketCounts() {
+            return mBuckets.clone();
+        }
+
+        /**
+         * Upper bound of the bucket holding the {@code percentile}th duration, so never lower than
+         * the real value. Returns 0 when nothing was recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long bucket : mBuckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketUpperBoundNanos(i), mMaxNanos);
+                }
+            }
+            return mMaxNanos;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count=%d mean=%.2fms p50=%.2fms p99=%.2fms "
+                            + "max=%.2fms", mCount, getMeanNanos() / 1e6,
+                    getPercentileNanos(50) / 1e6, getPercentileNanos(99) / 1e6, mMaxNanos / 1e6);
+        }
+    }
+}